@@ -0,0 +1,80 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of resource operations on a single card.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardBenchmark {
+    private static final Resource[] BASIC = {Resource.GREEN, Resource.RED, Resource.YELLOW, Resource.BULB, Resource.GEAR, Resource.CAR};
+
+    /**
+     * Number of resources stored on the card.
+     */
+    @Param({"4", "16", "64"})
+    private int resourceCount;
+
+    private Card card;
+    private List<Resource> request;
+    private int[] requestVector;
+
+    @Setup
+    public void setUp() {
+        final List<Resource> resources = new ArrayList<>();
+        for (int i = 0; i < resourceCount; i++) {
+            resources.add(BASIC[i % BASIC.length]);
+        }
+        card = new Card(resources, null, null, 1);
+
+        // pay half of the resources
+        request = new ArrayList<>(resources.subList(0, resourceCount / 2));
+        requestVector = new int[Resource.values().length];
+        for (Resource resource : request) {
+            requestVector[resource.ordinal()]++;
+        }
+    }
+
+    @Benchmark
+    public boolean canGetResourcesList() {
+        return card.canGetResources(request);
+    }
+
+    @Benchmark
+    public boolean canGetResourcesVector() {
+        return card.canGetResources(requestVector);
+    }
+
+    @Benchmark
+    public Card getAndPutResourcesList() {
+        card.getResources(request);
+        card.putResources(request);
+        return card;
+    }
+
+    @Benchmark
+    public Card getAndPutResourcesVector() {
+        card.getResources(requestVector);
+        card.putResources(requestVector);
+        return card;
+    }
+}
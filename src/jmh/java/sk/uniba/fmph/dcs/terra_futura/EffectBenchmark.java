@@ -0,0 +1,69 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link EffectOr#check} on wide OR trees.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EffectBenchmark {
+    private static final Resource[] BASIC = {Resource.GREEN, Resource.RED, Resource.YELLOW, Resource.BULB, Resource.GEAR, Resource.CAR};
+
+    /**
+     * Number of alternatives in the OR effect.
+     */
+    @Param({"2", "16", "64"})
+    private int width;
+
+    private Effect effect;
+    private List<Resource> matchingInput;
+    private List<Resource> output;
+    private List<Resource> missingInput;
+
+    @Setup
+    public void setUp() {
+        final List<Effect> alternatives = new ArrayList<>();
+        for (int i = 0; i < width; i++) {
+            alternatives.add(new TransformationFixed(
+                    List.of(BASIC[i % BASIC.length], BASIC[(i / BASIC.length) % BASIC.length]),
+                    List.of(Resource.MONEY),
+                    i % 2));
+        }
+        effect = new EffectOr(alternatives);
+
+        // the last alternative matches, with the input in reverse order
+        final int last = width - 1;
+        matchingInput = List.of(BASIC[(last / BASIC.length) % BASIC.length], BASIC[last % BASIC.length]);
+        output = List.of(Resource.MONEY);
+        missingInput = List.of(Resource.POLLUTION, Resource.POLLUTION);
+    }
+
+    @Benchmark
+    public boolean checkMatchingLast() {
+        return effect.check(matchingInput, output, (width - 1) % 2);
+    }
+
+    @Benchmark
+    public boolean checkNoMatch() {
+        return effect.check(missingInput, output, 0);
+    }
+}
@@ -0,0 +1,70 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ScoringMethod} on a full 5x5 grid.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoringBenchmark {
+    private static final Resource[] BASIC = {Resource.GREEN, Resource.RED, Resource.YELLOW, Resource.BULB, Resource.GEAR, Resource.CAR};
+
+    /**
+     * Number of resources on every card.
+     */
+    @Param({"2", "16"})
+    private int resourcesPerCard;
+
+    private ScoringMethod method;
+    private ScoringMethod incremental;
+
+    @Setup
+    public void setUp() {
+        final Grid grid = new Grid();
+        for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+            final List<Resource> resources = new ArrayList<>();
+            for (int i = 0; i < resourcesPerCard; i++) {
+                resources.add(BASIC[(index + i) % BASIC.length]);
+            }
+            if (index % 7 == 0) {
+                resources.add(Resource.POLLUTION);
+            }
+            grid.putCard(GridPosition.fromIndex(index), new Card(resources, null, null, 1));
+        }
+
+        final List<Resource> pattern = List.of(Resource.GREEN, Resource.RED, Resource.BULB);
+        method = new ScoringMethod(pattern, new Points(4), grid);
+        incremental = ScoringMethod.incremental(pattern, new Points(4), grid);
+    }
+
+    @Benchmark
+    public Optional<Points> selectThisMethodAndCalculate() {
+        method.selectThisMethodAndCalculate();
+        return method.getCalculatedTotal();
+    }
+
+    @Benchmark
+    public Optional<Points> incrementalTotal() {
+        return incremental.getCalculatedTotal();
+    }
+}
@@ -0,0 +1,80 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link Grid} state serialization on a full grid. {@link #state()} and
+ * {@link #writeStateReusedSink()} poll an unchanged grid, so they measure the cached
+ * state; the {@code changed} benchmarks change one card before every invocation, so
+ * that card and the grid are serialized again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateBenchmark {
+    private Grid grid;
+    private Card first;
+    private final int[] delta = new int[Resource.values().length];
+    private final StringBuilder sink = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        grid = new Grid();
+        final Effect upper = new EffectOr(List.of(
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 1),
+                new ArbitraryBasic(2, List.of(Resource.CAR), 0)));
+        for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+            grid.putCard(GridPosition.fromIndex(index),
+                    new Card(List.of(Resource.GREEN, Resource.RED, Resource.GEAR), upper, null, 1));
+        }
+        first = grid.getCard(GridPosition.fromIndex(0)).orElseThrow();
+    }
+
+    @Benchmark
+    public String state() {
+        return grid.state();
+    }
+
+    @Benchmark
+    public int writeStateReusedSink() throws IOException {
+        sink.setLength(0);
+        grid.writeState(sink);
+        return sink.length();
+    }
+
+    @Benchmark
+    public String changedState() {
+        changeFirstCard();
+        return grid.state();
+    }
+
+    @Benchmark
+    public int changedWriteStateReusedSink() throws IOException {
+        changeFirstCard();
+        sink.setLength(0);
+        grid.writeState(sink);
+        return sink.length();
+    }
+
+    // alternately adds and removes a green resource, so the grid does not grow
+    private void changeFirstCard() {
+        delta[Resource.GREEN.ordinal()] = first.getModCount() % 2 == 0 ? 1 : -1;
+        first.adjustResources(delta);
+    }
+}
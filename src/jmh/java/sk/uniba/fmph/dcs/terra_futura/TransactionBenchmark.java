@@ -0,0 +1,85 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link CardTransactionExecutor#execute} with resources
+ * paid from several cards. Each invocation moves the resources to a
+ * target card and back, so the grid stays in a steady state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+    private static final GridPosition TARGET = GridPosition.of(0, 0);
+
+    /**
+     * Number of cards that pay a resource.
+     */
+    @Param({"1", "4", "16"})
+    private int fanOut;
+
+    /**
+     * Executor implementation: "default" or "allocationFree".
+     */
+    @Param({"default", "allocationFree"})
+    private String mode;
+
+    private Grid grid;
+    private CardTransactionExecutor executor;
+    private List<Pair<Resource, GridPosition>> forwardInputs;
+    private List<Pair<Resource, GridPosition>> forwardOutputs;
+    private List<Pair<Resource, GridPosition>> backwardInputs;
+    private List<Pair<Resource, GridPosition>> backwardOutputs;
+
+    @Setup
+    public void setUp() {
+        executor = "allocationFree".equals(mode) ? CardTransactionExecutor.allocationFree() : new CardTransactionExecutor();
+        grid = new Grid();
+        grid.putCard(TARGET, new Card(null, null, 0));
+
+        forwardInputs = new ArrayList<>();
+        forwardOutputs = new ArrayList<>();
+        backwardInputs = new ArrayList<>();
+        backwardOutputs = new ArrayList<>();
+        int placed = 0;
+        for (int index = 0; index < GridPosition.CELL_COUNT && placed < fanOut; index++) {
+            final GridPosition position = GridPosition.fromIndex(index);
+            if (position.equals(TARGET)) {
+                continue;
+            }
+            grid.putCard(position, new Card(List.of(Resource.GREEN), null, null, 0));
+            forwardInputs.add(Pair.of(Resource.GREEN, position));
+            forwardOutputs.add(Pair.of(Resource.GREEN, TARGET));
+            backwardInputs.add(Pair.of(Resource.GREEN, TARGET));
+            backwardOutputs.add(Pair.of(Resource.GREEN, position));
+            placed++;
+        }
+    }
+
+    @Benchmark
+    public boolean executeRoundTrip() {
+        final boolean forward = executor.execute(grid, forwardInputs, forwardOutputs, Collections.emptyList());
+        final boolean backward = executor.execute(grid, backwardInputs, backwardOutputs, Collections.emptyList());
+        return forward & backward;
+    }
+}
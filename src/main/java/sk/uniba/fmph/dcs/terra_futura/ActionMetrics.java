@@ -0,0 +1,142 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process registry of action counters and latency histograms.
+ * <p>
+ * {@link CardTransactionExecutor}, {@link ProcessAction},
+ * {@link ProcessActionAssistance} and {@link MoveCard} accept a registry and
+ * report every call to it: whether it succeeded, the reason it was rejected,
+ * and how long it took. All counters are {@link LongAdder}s, so reporting from
+ * many threads does not contend. The registry can be polled at any time.
+ * <p>
+ * Components use {@link #disabled()} unless given a registry; it is never read
+ * from the clock and ignores every report.
+ */
+public final class ActionMetrics {
+    private static final ActionType[] TYPES = ActionType.values();
+    private static final RejectionReason[] REASONS = RejectionReason.values();
+    private static final ActionMetrics DISABLED = new ActionMetrics(false);
+    private static final double MEDIAN = 50;
+    private static final double P99 = 99;
+
+    private final boolean enabled;
+    private final LongAdder[] succeeded;
+    private final LongAdder[][] rejected;
+    private final LatencyHistogram[] latencies;
+
+    /**
+     * Creates an enabled registry with all counters at zero.
+     */
+    public ActionMetrics() {
+        this(true);
+    }
+
+    private ActionMetrics(final boolean enabled) {
+        this.enabled = enabled;
+        final int types = enabled ? TYPES.length : 0;
+        this.succeeded = new LongAdder[types];
+        this.rejected = new LongAdder[types][REASONS.length];
+        this.latencies = new LatencyHistogram[types];
+        for (int t = 0; t < types; t++) {
+            succeeded[t] = new LongAdder();
+            latencies[t] = new LatencyHistogram();
+            for (int r = 0; r < REASONS.length; r++) {
+                rejected[t][r] = new LongAdder();
+            }
+        }
+    }
+
+    /**
+     * @return the shared registry that records nothing
+     */
+    public static ActionMetrics disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return {@code true} if this registry records reports
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return start timestamp for {@link #record}, or 0 if the registry is disabled
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Reports a finished action.
+     *
+     * @param type   the action
+     * @param reason why it was rejected, or {@code null} if it was applied
+     * @param start  value returned by {@link #start()} when the action began
+     */
+    void record(final ActionType type, final RejectionReason reason, final long start) {
+        if (!enabled) {
+            return;
+        }
+        final int t = type.ordinal();
+        latencies[t].record(System.nanoTime() - start);
+        if (reason == null) {
+            succeeded[t].increment();
+        } else {
+            rejected[t][reason.ordinal()].increment();
+        }
+    }
+
+    /**
+     * Polls the statistics of one action type.
+     *
+     * @param type the action
+     * @return current statistics; all zero if the registry is disabled
+     */
+    public ActionStats getStats(final ActionType type) {
+        if (!enabled) {
+            return new ActionStats(0, Map.of(), 0, 0, 0);
+        }
+        final int t = type.ordinal();
+        final Map<RejectionReason, Long> reasons = new EnumMap<>(RejectionReason.class);
+        for (RejectionReason reason : REASONS) {
+            final long count = rejected[t][reason.ordinal()].sum();
+            if (count > 0) {
+                reasons.put(reason, count);
+            }
+        }
+        final LatencyHistogram latency = latencies[t];
+        return new ActionStats(succeeded[t].sum(), reasons,
+                latency.getPercentile(MEDIAN), latency.getPercentile(P99), latency.getMax());
+    }
+
+    /**
+     * Polls the statistics of every action type.
+     *
+     * @return current statistics by action type
+     */
+    public Map<ActionType, ActionStats> getStats() {
+        final Map<ActionType, ActionStats> stats = new EnumMap<>(ActionType.class);
+        for (ActionType type : TYPES) {
+            stats.put(type, getStats(type));
+        }
+        return stats;
+    }
+
+    /**
+     * Sets all counters and histograms back to zero.
+     */
+    public void reset() {
+        for (int t = 0; t < succeeded.length; t++) {
+            succeeded[t].reset();
+            latencies[t].reset();
+            for (LongAdder counter : rejected[t]) {
+                counter.reset();
+            }
+        }
+    }
+}
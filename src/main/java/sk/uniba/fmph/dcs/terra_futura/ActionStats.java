@@ -0,0 +1,35 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.Map;
+
+/**
+ * Polled statistics of one {@link ActionType}, see {@link ActionMetrics#getStats(ActionType)}.
+ *
+ * @param succeeded  number of actions that were applied
+ * @param rejected   number of rejected actions per reason; reasons that never occurred are missing
+ * @param p50Nanos   estimated median duration
+ * @param p99Nanos   estimated 99th percentile duration
+ * @param maxNanos   longest duration
+ */
+public record ActionStats(
+        long succeeded,
+        Map<RejectionReason, Long> rejected,
+        long p50Nanos,
+        long p99Nanos,
+        long maxNanos) {
+
+    public ActionStats {
+        rejected = Map.copyOf(rejected);
+    }
+
+    /**
+     * @return total number of rejected actions
+     */
+    public long totalRejected() {
+        long total = 0;
+        for (long count : rejected.values()) {
+            total += count;
+        }
+        return total;
+    }
+}
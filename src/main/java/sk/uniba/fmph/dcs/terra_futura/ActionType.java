@@ -0,0 +1,27 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+/**
+ * Actions measured by {@link ActionMetrics}.
+ */
+public enum ActionType {
+    /**
+     * {@link CardTransactionExecutor#execute}.
+     */
+    TRANSACTION,
+    /**
+     * {@link CardTransactionExecutor#executeBatch} and {@link ProcessAction#activateCards}.
+     */
+    BATCH,
+    /**
+     * {@link ProcessAction#activateCard}.
+     */
+    ACTIVATION,
+    /**
+     * {@link ProcessActionAssistance#activateCard}.
+     */
+    ASSISTED_ACTIVATION,
+    /**
+     * {@link MoveCard#moveCard}.
+     */
+    MOVE_CARD
+}
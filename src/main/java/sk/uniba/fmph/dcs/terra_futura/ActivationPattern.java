@@ -1,31 +1,46 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.ArrayList;
 import java.util.Collection;
 
-import org.json.JSONObject;
-import org.json.JSONArray;
-
 
 
 public final class ActivationPattern {
     private ArrayList<SimpleEntry<Integer, Integer>> pattern;
     private boolean selected;
     private InterfaceActivateGrid grid;
+    private final EventJournal journal;
 
     public ActivationPattern(final InterfaceActivateGrid grid, final Collection<SimpleEntry<Integer, Integer>> pattern) {
+        this(grid, pattern, null);
+    }
+
+    public ActivationPattern(
+            final InterfaceActivateGrid grid,
+            final Collection<SimpleEntry<Integer, Integer>> pattern,
+            final EventJournal journal) {
         this.grid = grid;
         this.pattern = new ArrayList<>(pattern);  // copy the pattern
         this.selected = false;
+        this.journal = journal;
     }
 
     public void select() {
         if (this.selected) {
             throw new IllegalStateException("Pattern already selected");
         }
+        // the event is prepared before the grid changes, so an applied selection is always journaled
+        if (this.journal != null && !this.journal.preparePatternSelection(this.pattern)) {
+            throw new IllegalArgumentException("Pattern cannot be journaled");
+        }
         this.grid.setActivationPattern(this.pattern);
         this.selected = true;
+        if (this.journal != null) {
+            this.journal.commit();
+        }
     }
 
 
@@ -35,16 +50,65 @@ public final class ActivationPattern {
 
 
     public String state() {
-        JSONArray patternList = new JSONArray();
-        for (SimpleEntry<Integer, Integer> entry: pattern) {
-            JSONObject pair = new JSONObject();
-            pair.put("x", entry.getKey());
-            pair.put("y", entry.getValue());
-            patternList.put(pair);
+        return JsonWriter.toString(this::writeState);
+    }
+
+
+    public void writeState(final Appendable out) throws IOException {
+        out.append('{');
+        JsonWriter.key(out, "selected");
+        JsonWriter.bool(out, this.selected);
+        out.append(',');
+        JsonWriter.key(out, "activations");
+        out.append('[');
+        for (int i = 0; i < pattern.size(); i++) {
+            final SimpleEntry<Integer, Integer> entry = pattern.get(i);
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('{');
+            JsonWriter.key(out, "x");
+            JsonWriter.number(out, entry.getKey());
+            out.append(',');
+            JsonWriter.key(out, "y");
+            JsonWriter.number(out, entry.getValue());
+            out.append('}');
+        }
+        out.append("]}");
+    }
+
+
+    /**
+     * Writes the selection flag and the pattern positions in the binary snapshot format.
+     *
+     * @param out destination
+     * @throws IllegalArgumentException if the pattern has more than 65535 positions
+     *                                  or a coordinate does not fit into a signed byte
+     */
+    public void writeSnapshot(final ByteBuffer out) {
+        for (SimpleEntry<Integer, Integer> entry : pattern) {
+            SnapshotCodec.requireSignedByte(entry.getKey());
+            SnapshotCodec.requireSignedByte(entry.getValue());
+        }
+        out.put((byte) (this.selected ? 1 : 0));
+        SnapshotCodec.writeUnsignedShort(out, pattern.size());
+        for (SimpleEntry<Integer, Integer> entry : pattern) {
+            out.put(entry.getKey().byteValue());
+            out.put(entry.getValue().byteValue());
+        }
+    }
+
+
+    public static ActivationPattern readSnapshot(final ByteBuffer in, final InterfaceActivateGrid grid) {
+        final boolean selected = in.get() != 0;
+        final int size = Short.toUnsignedInt(in.getShort());
+        final ArrayList<SimpleEntry<Integer, Integer>> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            final int x = in.get();
+            entries.add(new SimpleEntry<>(x, (int) in.get()));
         }
-        JSONObject result = new JSONObject();
-        result.put("selected", this.selected);
-        result.put("activations", patternList);
-        return result.toString();
+        final ActivationPattern activationPattern = new ActivationPattern(grid, entries);
+        activationPattern.selected = selected;
+        return activationPattern;
     }
 }
@@ -6,11 +6,13 @@ import java.util.Objects;
 /**
  * Effect that consumes an arbitrary set of resources of a given size
  * and produces a fixed list of output resources and pollution.
+ * The output is compared as a multiset.
  */
 public final class ArbitraryBasic implements Effect {
     private final int from;
     private final List<Resource> to;
     private final int pollution;
+    private final CompiledEffect compiled;
 
     /**
      * Creates an effect with arbitrary input of the given size.
@@ -23,15 +25,17 @@ public final class ArbitraryBasic implements Effect {
         this.from = from;
         this.to = List.copyOf(Objects.requireNonNull(to, "Output cannot be null"));
         this.pollution = pollution;
+        this.compiled = CompiledEffect.arbitrary(from, this.to, pollution);
     }
 
     @Override
     public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
-        if (input == null || output == null) {
-            return false;
-        }
+        return compiled.check(input, output, pollution);
+    }
 
-        return input.size() == from && output.equals(to) && this.pollution == pollution;
+    @Override
+    public CompiledEffect compile() {
+        return compiled;
     }
 
     @Override
@@ -43,4 +47,25 @@ public final class ArbitraryBasic implements Effect {
     public String state() {
         return String.format("ArbitraryBasic{from=%d, to=%s, pollution=%d}", from, to, pollution);
     }
+
+    /**
+     * @return number of resources paid as input
+     */
+    int getFrom() {
+        return from;
+    }
+
+    /**
+     * @return resources gained as output
+     */
+    List<Resource> getTo() {
+        return to;
+    }
+
+    /**
+     * @return pollution produced by this effect
+     */
+    int getPollution() {
+        return pollution;
+    }
 }
@@ -0,0 +1,21 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+/**
+ * Serialized state of a component together with the modification count it was built at.
+ * Kept in one immutable object, so a cache read from another thread never
+ * pairs a version with the state of a different version.
+ *
+ * @param version modification count of the component when the state was built
+ * @param json    the state
+ */
+record CachedState(long version, String json) {
+
+    /**
+     * @param cache   cache of a component, may be {@code null}
+     * @param version current modification count of the component
+     * @return {@code true} if the cache holds the state of that version
+     */
+    static boolean isValid(final CachedState cache, final long version) {
+        return cache != null && cache.version == version;
+    }
+}
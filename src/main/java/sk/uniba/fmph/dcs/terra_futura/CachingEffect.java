@@ -0,0 +1,172 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decorator that memoizes the results of {@link Effect#check}.
+ * <p>
+ * Entries are keyed by the packed resource-count signatures of the input and
+ * output (see {@link CompiledEffect#signature(List)}) together with the
+ * pollution, so lists in a different order share an entry and no key objects
+ * are allocated. The wrapped effect must therefore not depend on the order of
+ * the resources, as is the case for {@link TransformationFixed},
+ * {@link ArbitraryBasic} and {@link EffectOr}; otherwise the result cached for
+ * one order is returned for every other. The cache is set-associative: a key maps to a set of
+ * {@value #WAYS} entries, and a full set evicts with the CLOCK policy, giving
+ * recently used entries a second chance. Calls that cannot be packed are
+ * passed to the effect without caching.
+ * <p>
+ * The cache is lock-free. Every entry is stored with a check word derived from
+ * its key and result, so an entry torn by concurrent writers reads as a miss.
+ * <p>
+ * An effect whose compiled form is exact is already checked by a few integer
+ * comparisons, so {@link #compile()} returns that form and cards holding the
+ * decorator use it directly; the cache serves direct calls to
+ * {@link #check} and effects that cannot be compiled.
+ */
+public final class CachingEffect implements Effect {
+    /**
+     * Number of entries in one set.
+     */
+    public static final int WAYS = 4;
+
+    private static final int WORDS_PER_ENTRY = 3;
+    private static final int POLLUTION_SHIFT = CompiledEffect.BITS_PER_RESOURCE * Card.RESOURCE_COUNT;
+    private static final long CHECK_SALT = 0x9E3779B97F4A7C15L;
+    private static final long TRUE = 1L;
+    private static final long FALSE = 2L;
+
+    private final Effect effect;
+    private final AtomicLongArray entries;
+    private final byte[] referenced;
+    private final byte[] hands;
+    private final int setMask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Wraps an effect with a cache. The effect's {@link Effect#check} must depend
+     * only on which resources the input and output hold and how many of each,
+     * not on their order, because all orders share one cache entry.
+     *
+     * @param effect   order-insensitive effect to memoize
+     * @param capacity maximum number of cached results; rounded up to a power of two, at least {@value #WAYS}
+     * @throws IllegalArgumentException if the capacity is not positive or too large
+     */
+    public CachingEffect(final Effect effect, final int capacity) {
+        this.effect = Objects.requireNonNull(effect, "Effect cannot be null");
+        if (capacity < 1 || capacity > 1 << 26) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^26");
+        }
+        final int needed = (capacity + WAYS - 1) / WAYS;
+        final int setCount = needed == 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+        this.setMask = setCount - 1;
+        this.entries = new AtomicLongArray(setCount * WAYS * WORDS_PER_ENTRY);
+        this.referenced = new byte[setCount * WAYS];
+        this.hands = new byte[setCount];
+    }
+
+    @Override
+    public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
+        if (input == null || output == null || pollution < 0 || pollution > CompiledEffect.MAX_COUNT) {
+            return effect.check(input, output, pollution);
+        }
+        final long inputSignature = CompiledEffect.signature(input);
+        final long outputSignature = CompiledEffect.signature(output);
+        if (inputSignature == CompiledEffect.INVALID_SIGNATURE || outputSignature == CompiledEffect.INVALID_SIGNATURE) {
+            return effect.check(input, output, pollution);
+        }
+
+        final long inputKey = inputSignature | (long) pollution << POLLUTION_SHIFT;
+        final long checkBase = checkWord(inputKey, outputSignature);
+        final int set = (int) (checkBase >>> 32) & setMask;
+        final int first = set * WAYS;
+
+        for (int way = first; way < first + WAYS; way++) {
+            final int base = way * WORDS_PER_ENTRY;
+            if (entries.getAcquire(base) == inputKey && entries.getAcquire(base + 1) == outputSignature) {
+                final long value = entries.getAcquire(base + 2) ^ checkBase;
+                if (value == TRUE || value == FALSE) {
+                    referenced[way] = 1;
+                    hits.increment();
+                    return value == TRUE;
+                }
+            }
+        }
+
+        misses.increment();
+        final boolean result = effect.check(input, output, pollution);
+        final int way = victim(set);
+        final int base = way * WORDS_PER_ENTRY;
+        entries.setRelease(base, inputKey);
+        entries.setRelease(base + 1, outputSignature);
+        entries.setRelease(base + 2, checkBase ^ (result ? TRUE : FALSE));
+        referenced[way] = 0;
+        return result;
+    }
+
+    /**
+     * Advances the clock hand of a set past recently used entries and returns
+     * the first one without the referenced bit, clearing bits on the way.
+     */
+    private int victim(final int set) {
+        final int first = set * WAYS;
+        int hand = hands[set];
+        while (true) {
+            final int way = first + hand;
+            hand = (hand + 1) % WAYS;
+            if (referenced[way] == 0) {
+                hands[set] = (byte) hand;
+                return way;
+            }
+            referenced[way] = 0;
+        }
+    }
+
+    private static long checkWord(final long inputKey, final long outputSignature) {
+        long z = inputKey * CHECK_SALT + outputSignature;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) & ~0x3L;
+    }
+
+    @Override
+    public CompiledEffect compile() {
+        final CompiledEffect compiled = effect.compile();
+        return compiled.isExact() ? compiled : CompiledEffect.opaque(this);
+    }
+
+    @Override
+    public boolean hasAssistance() {
+        return effect.hasAssistance();
+    }
+
+    @Override
+    public String state() {
+        return effect.state();
+    }
+
+    /**
+     * @return number of checks answered from the cache
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return number of checks passed to the effect
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return maximum number of cached results
+     */
+    public int capacity() {
+        return hands.length * WAYS;
+    }
+}
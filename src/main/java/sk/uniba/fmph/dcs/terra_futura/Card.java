@@ -1,8 +1,7 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -11,15 +10,31 @@ import java.util.Objects;
  * Represents a single card in the player's grid.
  * Stores resources placed on the card,
  * upper/lower effects and pollution capacity
+ *
+ * Resources are kept as a count per {@link Resource} (indexed by ordinal),
+ * so all resource operations run in O(|Resource|) without allocation.
  */
 public final class Card {
-    private final List<Resource> resources;
+    static final int RESOURCE_COUNT = Resource.values().length;
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int POLLUTION = Resource.POLLUTION.ordinal();
+
+    private int[] counts = new int[RESOURCE_COUNT];
+    private boolean countsShared;
+    private final long identityKey;
+    private long zobristHash;
     private final Effect upperEffect;
     private final Effect lowerEffect;
+    private final CompiledEffect upperCompiled;
+    private final CompiledEffect lowerCompiled;
     private final int pollutionSpaces;
+    private Runnable changeListener;
+    private long modCount;
+    private CachedState stateCache;
 
     private static final int MIN_POLLUTION_SPACES = 0;
     private static final int MAX_POLLUTION_SPACES = 3;
+    private static final int MAX_SNAPSHOT_COUNT = 0xFFFF;
 
     /**
      * Creates a card with the given resources, effects, and pollution capacity.
@@ -30,13 +45,25 @@ public final class Card {
      * @param pollutionSpaces number of safe pollution spaces on the card (0..3)
      */
     public Card(final List<Resource> resources, final Effect upperEffect, final Effect lowerEffect, final int pollutionSpaces) {
+        this(resources, upperEffect, lowerEffect, pollutionSpaces, Zobrist.nextCardKey());
+    }
+
+    private Card(final List<Resource> resources, final Effect upperEffect, final Effect lowerEffect,
+                 final int pollutionSpaces, final long identityKey) {
         if (pollutionSpaces < MIN_POLLUTION_SPACES || pollutionSpaces > MAX_POLLUTION_SPACES) {
             throw new IllegalArgumentException("Invalid pollution spaces number");
         }
-        this.resources = new ArrayList<>(Objects.requireNonNull(resources, "Resources cannot be null"));
+        Objects.requireNonNull(resources, "Resources cannot be null");
+        for (Resource resource : resources) {
+            counts[Objects.requireNonNull(resource, "Resource cannot be null").ordinal()]++;
+        }
         this.upperEffect = upperEffect;
         this.lowerEffect = lowerEffect;
+        this.upperCompiled = upperEffect == null ? null : upperEffect.compile();
+        this.lowerCompiled = lowerEffect == null ? null : lowerEffect.compile();
         this.pollutionSpaces = pollutionSpaces;
+        this.identityKey = identityKey;
+        rehash();
     }
 
     /**
@@ -50,6 +77,20 @@ public final class Card {
         this(new ArrayList<>(), upperEffect, lowerEffect, pollutionSpaces);
     }
 
+    private Card(final Card original) {
+        this.counts = original.counts;
+        this.countsShared = true;
+        this.upperEffect = original.upperEffect;
+        this.lowerEffect = original.lowerEffect;
+        this.upperCompiled = original.upperCompiled;
+        this.lowerCompiled = original.lowerCompiled;
+        this.pollutionSpaces = original.pollutionSpaces;
+        this.identityKey = original.identityKey;
+        this.zobristHash = original.zobristHash;
+        this.modCount = original.modCount;
+        this.stateCache = original.stateCache;
+    }
+
     /**
      * Checks whether the card currently has all requested resources and is usable.
      * Used before removing resources from the card.
@@ -68,7 +109,32 @@ public final class Card {
             return false;
         }
 
-        return containsMultiset(this.resources, resources);
+        return containsMultiset(resources);
+    }
+
+    /**
+     * Count-vector variant of {@link #canGetResources(List)}.
+     *
+     * @param amounts number of resources to be taken, indexed by {@link Resource#ordinal()}
+     * @return {@code true} if the card is active and contains all requested resources, {@code false} otherwise
+     */
+    public boolean canGetResources(final int[] amounts) {
+        if (amounts == null || amounts.length != RESOURCE_COUNT) {
+            return false;
+        }
+        if (isInactive()) {
+            return false;
+        }
+
+        boolean empty = true;
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            if (amounts[i] < 0 || amounts[i] > counts[i]) {
+                return false;
+            }
+            empty &= amounts[i] == 0;
+        }
+
+        return !empty;
     }
 
     /**
@@ -83,10 +149,30 @@ public final class Card {
             throw new IllegalArgumentException("Cannot get requested resources from the card");
         }
 
+        final int[] counts = mutableCounts();
         for (Resource resource : resources) {
             // containsMultiset() guarantees that this will succeed
-            this.resources.remove(resource);
+            adjust(counts, resource.ordinal(), -1);
         }
+        changed();
+    }
+
+    /**
+     * Count-vector variant of {@link #getResources(List)}.
+     *
+     * @param amounts number of resources to be taken, indexed by {@link Resource#ordinal()}
+     * @throws IllegalArgumentException if resources cannot be taken
+     */
+    public void getResources(final int[] amounts) {
+        if (!canGetResources(amounts)) {
+            throw new IllegalArgumentException("Cannot get requested resources from the card");
+        }
+
+        final int[] counts = mutableCounts();
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            adjust(counts, i, -amounts[i]);
+        }
+        changed();
     }
 
     /**
@@ -99,11 +185,35 @@ public final class Card {
         if (resources == null) {
             return false;
         }
+        for (Resource resource : resources) {
+            if (resource == null) {
+                return false;
+            }
+        }
 
         // On inactive cards we do not place any resources at all
         return !isInactive();
     }
 
+    /**
+     * Count-vector variant of {@link #canPutResources(List)}.
+     *
+     * @param amounts number of resources to be placed, indexed by {@link Resource#ordinal()}
+     * @return {@code true} if the card is active and putting resources is allowed, {@code false} otherwise
+     */
+    public boolean canPutResources(final int[] amounts) {
+        if (amounts == null || amounts.length != RESOURCE_COUNT) {
+            return false;
+        }
+        for (int amount : amounts) {
+            if (amount < 0) {
+                return false;
+            }
+        }
+
+        return !isInactive();
+    }
+
     /**
      * Adds the given resources to the card.
      * Assumes that {@link #canPutResources(List)} was checked before and returned {@code true}.
@@ -116,7 +226,29 @@ public final class Card {
             throw new IllegalArgumentException("Cannot put resources on the card");
         }
 
-        this.resources.addAll(resources);
+        final int[] counts = mutableCounts();
+        for (Resource resource : resources) {
+            adjust(counts, resource.ordinal(), 1);
+        }
+        changed();
+    }
+
+    /**
+     * Count-vector variant of {@link #putResources(List)}.
+     *
+     * @param amounts number of resources to be placed, indexed by {@link Resource#ordinal()}
+     * @throws IllegalArgumentException if resources cannot be placed
+     */
+    public void putResources(final int[] amounts) {
+        if (!canPutResources(amounts)) {
+            throw new IllegalArgumentException("Cannot put resources on the card");
+        }
+
+        final int[] counts = mutableCounts();
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            adjust(counts, i, amounts[i]);
+        }
+        changed();
     }
 
     /**
@@ -130,7 +262,7 @@ public final class Card {
      * the effect can be applied, {@code false} otherwise
      */
     public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
-        return checkEffect(input, output, pollution, upperEffect);
+        return checkEffect(input, output, pollution, upperCompiled);
     }
 
     /**
@@ -144,11 +276,11 @@ public final class Card {
      * the effect can be applied, {@code false} otherwise
      */
     public boolean checkLower(final List<Resource> input, final List<Resource> output, final int pollution) {
-        return checkEffect(input, output, pollution, lowerEffect);
+        return checkEffect(input, output, pollution, lowerCompiled);
     }
 
     // Shared implementation for upper/lower effect checks
-    private boolean checkEffect(final List<Resource> input, final List<Resource> output, final int pollution, final Effect effect) {
+    private boolean checkEffect(final List<Resource> input, final List<Resource> output, final int pollution, final CompiledEffect effect) {
         if (effect == null) {
             return false;
         }
@@ -162,6 +294,97 @@ public final class Card {
         return effect.check(input, output, pollution);
     }
 
+    /**
+     * Sets the callback invoked after every change of the stored resources.
+     * Used by {@link Grid} to forward changes of its cards to {@link GridListener}s.
+     *
+     * @param changeListener callback to invoke, or {@code null} to remove it
+     */
+    void setChangeListener(final Runnable changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * @return {@code true} if a change listener is set, that is, the card lies on a grid
+     */
+    boolean hasChangeListener() {
+        return changeListener != null;
+    }
+
+    /**
+     * Changes one resource count and updates the hash in O(1).
+     */
+    private void adjust(final int[] counts, final int resource, final int delta) {
+        if (delta == 0) {
+            return;
+        }
+        zobristHash ^= Zobrist.resourceKey(resource, counts[resource]);
+        counts[resource] += delta;
+        zobristHash ^= Zobrist.resourceKey(resource, counts[resource]);
+    }
+
+    /**
+     * Adds signed amounts to the resource counts without any validation and
+     * notifies the change listener once. Used by
+     * {@link CardTransactionExecutor#executeBatch} after it has validated the batch.
+     *
+     * @param deltas amounts to add, indexed by {@link Resource#ordinal()}; may be negative
+     */
+    void adjustResources(final int[] deltas) {
+        final int[] counts = mutableCounts();
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            adjust(counts, i, deltas[i]);
+        }
+        changed();
+    }
+
+    private void rehash() {
+        long hash = identityKey;
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            hash ^= Zobrist.resourceKey(i, counts[i]);
+        }
+        zobristHash = hash;
+    }
+
+    /**
+     * Returns the Zobrist hash of the card: its identity and its resource counts.
+     * Copies made by {@link #copy()} have the same identity, so a copy with the
+     * same resources has the same hash. The hash is updated on every resource change.
+     *
+     * @return the hash
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * @return number of changes of the resources so far; copies start with the count of their original
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    private void changed() {
+        modCount++;
+        if (changeListener != null) {
+            changeListener.run();
+        }
+    }
+
+    /**
+     * @return compiled upper effect, or {@code null} if the card has no upper effect
+     */
+    CompiledEffect getCompiledUpperEffect() {
+        return upperCompiled;
+    }
+
+    /**
+     * @return compiled lower effect, or {@code null} if the card has no lower effect
+     */
+    CompiledEffect getCompiledLowerEffect() {
+        return lowerCompiled;
+    }
+
     /**
      * @return {@code true} if the card has an upper or lower effect that provides assistance, {@code false} otherwise
      */
@@ -170,43 +393,180 @@ public final class Card {
     }
 
     /**
+     * Returns the state of the card as JSON. It is built only once per
+     * {@link #getModCount() modification count}.
+     *
      * @return the state of the card as a JSON string
      */
     public String state() {
-        JSONObject result = new JSONObject();
+        final CachedState state = cachedState();
+        storeState(state);
+        return state.json();
+    }
 
-        JSONArray resourcesArray = new JSONArray();
-        for (Resource resource : resources) {
-            resourcesArray.put(resource.name());
+    /**
+     * @return the cached state if it is current, otherwise a newly built one that is not stored
+     */
+    CachedState cachedState() {
+        final long version = modCount;
+        final CachedState cache = stateCache;
+        if (CachedState.isValid(cache, version)) {
+            return cache;
         }
-        result.put("resources", resourcesArray);
-        result.put("inactive", isInactive());
-        result.put("hasAssistance", hasAssistance());
+        return new CachedState(version, JsonWriter.toString(this::writeFields));
+    }
+
+    /**
+     * Stores a state returned by {@link #cachedState()}. A concurrent grid calls this
+     * only once the read that built the state has been validated.
+     *
+     * @param state state to cache
+     */
+    void storeState(final CachedState state) {
+        if (stateCache != state) {
+            stateCache = state;
+        }
+    }
+
+    /**
+     * Writes the state of the card as JSON, see {@link #state()}. A current cached
+     * state is appended as is, otherwise the state is streamed to the destination
+     * without building or caching a string.
+     *
+     * @param out destination
+     * @throws IOException if the destination fails
+     */
+    public void writeState(final Appendable out) throws IOException {
+        final CachedState cache = stateCache;
+        if (CachedState.isValid(cache, modCount)) {
+            out.append(cache.json());
+            return;
+        }
+        writeFields(out);
+    }
+
+    private void writeFields(final Appendable out) throws IOException {
+        out.append('{');
+        JsonWriter.key(out, "resources");
+        out.append('[');
+        boolean first = true;
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            for (int j = 0; j < counts[i]; j++) {
+                if (!first) {
+                    out.append(',');
+                }
+                out.append('"').append(RESOURCES[i].name()).append('"');
+                first = false;
+            }
+        }
+        out.append("],");
+        JsonWriter.key(out, "inactive");
+        JsonWriter.bool(out, isInactive());
+        out.append(',');
+        JsonWriter.key(out, "hasAssistance");
+        JsonWriter.bool(out, hasAssistance());
+        out.append(',');
 
         if (upperEffect != null) {
-            result.put("upperEffect", upperEffect.state());
+            JsonWriter.key(out, "upperEffect");
+            JsonWriter.string(out, upperEffect.state());
+            out.append(',');
         }
         if (lowerEffect != null) {
-            result.put("lowerEffect", lowerEffect.state());
+            JsonWriter.key(out, "lowerEffect");
+            JsonWriter.string(out, lowerEffect.state());
+            out.append(',');
         }
 
-        result.put("pollutionSpaces", pollutionSpaces);
+        JsonWriter.key(out, "pollutionSpaces");
+        JsonWriter.number(out, pollutionSpaces);
+        out.append('}');
+    }
 
-        return result.toString();
+    /**
+     * Creates a copy of the card in O(1). The copy shares the effects and,
+     * until either card changes its resources, the resource counts.
+     * The copy is not attached to any grid.
+     *
+     * @return the copy
+     */
+    public Card copy() {
+        final Card copy = new Card(this);
+        countsShared = true;
+        return copy;
     }
 
     /**
-     * @return {@code true} if the card is inactive (blocked), {@code false} otherwise
+     * Writes the card in the binary snapshot format: its identity key, pollution spaces,
+     * a bit mask of the resource types present followed by their counts, and both effects.
+     * The identity key is kept so a restored card has the same {@link #getZobristHash()}.
+     *
+     * @param out destination
+     * @throws IllegalArgumentException if an effect cannot be written, see {@link GameSnapshot}
      */
-    private boolean isInactive() {
-        int pollutionCount = 0;
-        for (Resource resource : resources) {
-            if (resource == Resource.POLLUTION) {
-                pollutionCount++;
+    public void writeSnapshot(final ByteBuffer out) {
+        out.putLong(identityKey);
+        out.put((byte) pollutionSpaces);
+        int mask = 0;
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            if (counts[i] > MAX_SNAPSHOT_COUNT) {
+                throw new IllegalArgumentException("Too many resources to write: " + counts[i]);
+            }
+            if (counts[i] != 0) {
+                mask |= 1 << i;
+            }
+        }
+        out.putShort((short) mask);
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            if (counts[i] != 0) {
+                out.putShort((short) counts[i]);
             }
         }
+        SnapshotCodec.writeEffect(out, upperEffect);
+        SnapshotCodec.writeEffect(out, lowerEffect);
+    }
+
+    /**
+     * Reads a card written by {@link #writeSnapshot(ByteBuffer)}.
+     *
+     * @param in source
+     * @return the card
+     * @throws IllegalArgumentException if the data is not a valid card
+     */
+    public static Card readSnapshot(final ByteBuffer in) {
+        final long identityKey = in.getLong();
+        final int pollutionSpaces = in.get();
+        final int mask = Short.toUnsignedInt(in.getShort());
+        if (mask >>> RESOURCE_COUNT != 0) {
+            throw new IllegalArgumentException("Unknown resources in mask: " + Integer.toHexString(mask));
+        }
+        final int[] amounts = new int[RESOURCE_COUNT];
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            if ((mask & (1 << i)) != 0) {
+                amounts[i] = Short.toUnsignedInt(in.getShort());
+            }
+        }
+        final Effect upper = SnapshotCodec.readEffect(in);
+        final Effect lower = SnapshotCodec.readEffect(in);
+
+        final Card card = new Card(List.of(), upper, lower, pollutionSpaces, identityKey);
+        System.arraycopy(amounts, 0, card.counts, 0, RESOURCE_COUNT);
+        card.rehash();
+        return card;
+    }
+
+    /**
+     * @return number of pollution the card holds before it becomes inactive
+     */
+    int getPollutionSpaces() {
+        return pollutionSpaces;
+    }
 
-        return pollutionCount > pollutionSpaces;
+    /**
+     * @return {@code true} if the card is inactive (blocked), {@code false} otherwise
+     */
+    private boolean isInactive() {
+        return counts[POLLUTION] > pollutionSpaces;
     }
 
     /**
@@ -217,28 +577,58 @@ public final class Card {
     }
 
     /**
-     * @return resources currently stored on the card
+     * @return resources currently stored on the card, grouped by resource type
      */
     public List<Resource> getResources() {
-        return new ArrayList<>(resources);
+        final List<Resource> result = new ArrayList<>();
+        for (int i = 0; i < RESOURCE_COUNT; i++) {
+            for (int j = 0; j < counts[i]; j++) {
+                result.add(RESOURCES[i]);
+            }
+        }
+        return result;
     }
 
     /**
-     * Helper method to check whether 'available' contains all resources from 'requested'
+     * @param resource resource type to count
+     * @return number of resources of the given type currently stored on the card
+     */
+    public int getResourceCount(final Resource resource) {
+        return counts[resource.ordinal()];
+    }
+
+    /**
+     * Helper method to check whether the card contains all resources from 'requested'
      * as a multiset (with duplicates).
      *
-     * @param available resources currently on the card
+     * The requested resources are counted in a single pass into a local count
+     * vector, so the counts, which may be shared with copies, are only read.
+     *
      * @param requested resources we want to pay
-     * @return {@code true} if all requested resources can be found in available
+     * @return {@code true} if all requested resources can be found on the card
      */
-    private static boolean containsMultiset(final List<Resource> available, final List<Resource> requested) {
-        List<Resource> copy = new ArrayList<>(available);
+    private boolean containsMultiset(final List<Resource> requested) {
+        final int[] wanted = new int[RESOURCE_COUNT];
         for (Resource resource : requested) {
-            if (!copy.remove(resource)) {
+            if (resource == null) {
+                return false;
+            }
+            final int i = resource.ordinal();
+            if (++wanted[i] > counts[i]) {
                 return false;
             }
         }
-
         return true;
     }
+
+    /**
+     * @return the counts, first copied if they are shared with another card
+     */
+    private int[] mutableCounts() {
+        if (countsShared) {
+            counts = counts.clone();
+            countsShared = false;
+        }
+        return counts;
+    }
 }
@@ -0,0 +1,25 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One resource transfer of a batch, see {@link CardTransactionExecutor#executeBatch}.
+ *
+ * @param inputs    resources to be taken from cards (resource, position)
+ * @param outputs   resources to be placed on cards (resource, position)
+ * @param pollution positions that receive pollution
+ */
+public record CardTransaction(
+        List<Pair<Resource, GridPosition>> inputs,
+        List<Pair<Resource, GridPosition>> outputs,
+        List<GridPosition> pollution) {
+
+    public CardTransaction {
+        Objects.requireNonNull(inputs, "inputs cannot be null");
+        Objects.requireNonNull(outputs, "outputs cannot be null");
+        Objects.requireNonNull(pollution, "pollution cannot be null");
+    }
+}
@@ -3,9 +3,11 @@ package sk.uniba.fmph.dcs.terra_futura;
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Collections;
 
@@ -14,8 +16,150 @@ import java.util.Collections;
  *
  * This class is responsible only for moving resources once a card effect
  * has already approved the activation.
+ *
+ * Executors created by {@link #allocationFree()} accumulate per-cell deltas
+ * into a reusable scratch buffer instead of building maps, validate and apply
+ * them in one pass over the touched cells, and allocate nothing in steady state.
+ * Such executors are not thread-safe.
+ *
+ * {@link #executeBatch} applies several transactions as one: each is validated
+ * against the counts left by the previous ones, and the grid changes only if
+ * all of them are valid.
+ *
+ * Executors created by {@link #withUndoLog()} also log the inverse of every
+ * change they apply, so a caller can {@link #mark()} a point and later
+ * {@link #rollbackTo(int)} it in time proportional to the changes made since.
+ * This lets a search make and unmake moves on one grid instead of copying it.
+ *
+ * Every call is reported to the executor's {@link ActionMetrics} as
+ * {@link ActionType#TRANSACTION} or {@link ActionType#BATCH}; batches of
+ * {@link ProcessAction#activateCards} are reported by the ProcessAction instead.
  */
 public final class CardTransactionExecutor {
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int POLLUTION = Resource.POLLUTION.ordinal();
+    // cell mask returned when a transfer contains a null element
+    private static final int INVALID = -1;
+
+    // scratch buffers of the allocation-free mode, null in the default mode
+    private final int[][] removals;
+    private final int[][] additions;
+    private final int[][] working;
+    // inverse deltas of applied changes, only in executors created by withUndoLog()
+    private final UndoLog undoLog;
+    private final ActionMetrics metrics;
+
+    /**
+     * Creates an executor using the default, map-based implementation.
+     */
+    public CardTransactionExecutor() {
+        this(false, false, ActionMetrics.disabled());
+    }
+
+    /**
+     * Creates an executor using the default implementation that reports to a metrics registry.
+     *
+     * @param metrics registry to report transactions to
+     */
+    public CardTransactionExecutor(final ActionMetrics metrics) {
+        this(false, false, metrics);
+    }
+
+    private CardTransactionExecutor(final boolean allocationFree, final boolean undoable, final ActionMetrics metrics) {
+        this.metrics = Objects.requireNonNull(metrics, "metrics cannot be null");
+        this.undoLog = undoable ? new UndoLog() : null;
+        if (allocationFree) {
+            this.removals = new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+            this.additions = new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+            this.working = new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+        } else {
+            this.removals = null;
+            this.additions = null;
+            this.working = null;
+        }
+    }
+
+    /**
+     * Creates an executor that works over a reusable per-cell scratch buffer.
+     * Results are the same as with the default implementation.
+     *
+     * @return a new allocation-free executor; not to be shared between threads
+     */
+    public static CardTransactionExecutor allocationFree() {
+        return new CardTransactionExecutor(true, false, ActionMetrics.disabled());
+    }
+
+    /**
+     * Creates an allocation-free executor that reports to a metrics registry.
+     *
+     * @param metrics registry to report transactions to
+     * @return a new allocation-free executor; not to be shared between threads
+     */
+    public static CardTransactionExecutor allocationFree(final ActionMetrics metrics) {
+        return new CardTransactionExecutor(true, false, metrics);
+    }
+
+    /**
+     * Creates an allocation-free executor that logs every applied change so it can be rolled back.
+     *
+     * @return a new executor with an undo log; not to be shared between threads
+     */
+    public static CardTransactionExecutor withUndoLog() {
+        return new CardTransactionExecutor(true, true, ActionMetrics.disabled());
+    }
+
+    /**
+     * @return {@code true} if this executor uses the allocation-free mode
+     */
+    public boolean isAllocationFree() {
+        return removals != null;
+    }
+
+    /**
+     * @return {@code true} if this executor logs changes for {@link #rollbackTo(int)}
+     */
+    public boolean hasUndoLog() {
+        return undoLog != null;
+    }
+
+    /**
+     * Marks the current point of the undo log.
+     *
+     * @return the mark to pass to {@link #rollbackTo(int)}
+     * @throws IllegalStateException if the executor has no undo log
+     */
+    public int mark() {
+        return requireUndoLog().size();
+    }
+
+    /**
+     * Reverts every change this executor applied since the mark, newest first.
+     * Changes made to the cards by other means since the mark must be reverted
+     * by the caller first. Marks taken after this one become invalid.
+     *
+     * @param mark value returned by {@link #mark()}
+     * @throws IllegalStateException    if the executor has no undo log
+     * @throws IllegalArgumentException if the mark is not in the log
+     */
+    public void rollbackTo(final int mark) {
+        requireUndoLog().rollbackTo(mark);
+    }
+
+    /**
+     * Empties the undo log, keeping all applied changes. Earlier marks become invalid.
+     *
+     * @throws IllegalStateException if the executor has no undo log
+     */
+    public void clearUndoLog() {
+        requireUndoLog().rollbackTo(0, false);
+    }
+
+    private UndoLog requireUndoLog() {
+        if (undoLog == null) {
+            throw new IllegalStateException("Executor has no undo log");
+        }
+        return undoLog;
+    }
 
     /**
      * Validates and applies a transaction on the grid.
@@ -33,9 +177,45 @@ public final class CardTransactionExecutor {
             final List<Pair<Resource, GridPosition>> inputs,
             final List<Pair<Resource, GridPosition>> outputs,
             final List<GridPosition> pollution) {
+        return executeOrReject(grid, inputs, outputs, pollution) == null;
+    }
+
+    /**
+     * Same as {@link #execute}, but tells why the transaction was rejected.
+     *
+     * @return {@code null} if the transaction was applied, otherwise the reason it was rejected
+     */
+    RejectionReason executeOrReject(
+            final Grid grid,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
+        final long start = metrics.start();
+        RejectionReason reason = RejectionReason.INVALID_ARGUMENT;
+        if (grid != null) {
+            final long stamp = grid.lockWrite();
+            try {
+                reason = transfer(grid, inputs, outputs, pollution);
+                grid.commit();
+            } finally {
+                grid.unlockWrite(stamp);
+            }
+        }
+        metrics.record(ActionType.TRANSACTION, reason, start);
+        return reason;
+    }
+
+    private RejectionReason transfer(
+            final Grid grid,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
 
         if (grid == null || inputs == null || outputs == null || pollution == null) {
-            return false;
+            return RejectionReason.INVALID_ARGUMENT;
+        }
+        if (isAllocationFree()) {
+            return executeAllocationFree(grid, inputs, outputs, pollution);
         }
 
         final Map<GridPosition, List<Resource>> resourcesToRemove = groupResourcesByPosition(inputs);
@@ -45,13 +225,15 @@ public final class CardTransactionExecutor {
         final Map<GridPosition, List<Resource>> resourcesToAddWithPollution = combineOutputsAndPollution(resourcesToAdd, pollutionByPosition);
 
         // 1) validate removals (paying resources)
-        if (!validateRemovals(grid, resourcesToRemove)) {
-            return false;
+        RejectionReason reason = validateRemovals(grid, resourcesToRemove);
+        if (reason != null) {
+            return reason;
         }
 
         // 2) validate additions (gaining resources + pollution)
-        if (!validateAdditions(grid, resourcesToAddWithPollution)) {
-            return false;
+        reason = validateAdditions(grid, resourcesToAddWithPollution);
+        if (reason != null) {
+            return reason;
         }
 
         // 3) apply changes: first remove, then add resources, then add pollution
@@ -59,7 +241,309 @@ public final class CardTransactionExecutor {
         applyAdditions(grid, resourcesToAdd);
         applyPollution(grid, pollutionByPosition);
 
-        return true;
+        return null;
+    }
+
+    /**
+     * Validates and applies several transactions at once, all or nothing.
+     * <p>
+     * The transactions are validated in order, each against the resources the
+     * previous ones leave on the cards, with the same rules as {@link #execute}:
+     * a later transaction may pay with resources an earlier one produced, and a
+     * card made inactive by pollution cannot take part in later transactions.
+     * If every transaction is valid, each touched card is changed once by its
+     * net difference; otherwise the grid is not modified.
+     *
+     * @param grid         player's grid
+     * @param transactions transactions in the order they are performed
+     * @return {@code true} if all transactions were applied, {@code false} if none was
+     */
+    public boolean executeBatch(final Grid grid, final List<CardTransaction> transactions) {
+        return executeBatchOrReject(grid, transactions) == null;
+    }
+
+    /**
+     * Same as {@link #executeBatch}, but tells why the batch was rejected.
+     *
+     * @return {@code null} if the batch was applied, otherwise the reason it was rejected
+     */
+    RejectionReason executeBatchOrReject(final Grid grid, final List<CardTransaction> transactions) {
+        final long start = metrics.start();
+        final RejectionReason reason = applyBatch(grid, transactions, null);
+        metrics.record(ActionType.BATCH, reason, start);
+        return reason;
+    }
+
+    /**
+     * Same as {@link #executeBatchOrReject(Grid, List)}, but also requires the card
+     * activated by each transaction to be active in the state the previous
+     * transactions leave behind, as it would be when activated one by one.
+     * The batch is not reported to the executor's metrics; the caller reports it.
+     *
+     * @param activated card activated by the transaction at the same index, or
+     *                  {@code null} to check only the cards the transactions touch
+     * @return {@code null} if the batch was applied, otherwise the reason it was rejected
+     */
+    RejectionReason applyBatch(
+            final Grid grid,
+            final List<CardTransaction> transactions,
+            final List<Card> activated) {
+        if (grid == null) {
+            return RejectionReason.INVALID_ARGUMENT;
+        }
+        final long stamp = grid.lockWrite();
+        try {
+            final RejectionReason reason = transferBatch(grid, transactions, activated);
+            grid.commit();
+            return reason;
+        } finally {
+            grid.unlockWrite(stamp);
+        }
+    }
+
+    private RejectionReason transferBatch(
+            final Grid grid,
+            final List<CardTransaction> transactions,
+            final List<Card> activated) {
+        if (grid == null || transactions == null || (activated != null && activated.size() != transactions.size())) {
+            return RejectionReason.INVALID_ARGUMENT;
+        }
+        final int[][] removed = isAllocationFree() ? removals : new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+        final int[][] added = isAllocationFree() ? additions : new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+        final int[][] counts = isAllocationFree() ? working : new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+        int touchedMask = 0;
+
+        try {
+            // 1) replay the transactions on the working counts of the touched cells
+            for (int i = 0; i < transactions.size(); i++) {
+                final CardTransaction transaction = transactions.get(i);
+                if (transaction == null) {
+                    return RejectionReason.INVALID_ARGUMENT;
+                }
+                // the activated card may have been polluted by an earlier transaction
+                final int activatedCell = activated == null ? -1 : cellOf(grid, activated.get(i));
+                if (activatedCell >= 0) {
+                    final Card card = grid.getCardAt(activatedCell);
+                    if ((touchedMask & (1 << activatedCell)) == 0) {
+                        load(card, counts[activatedCell]);
+                        touchedMask |= 1 << activatedCell;
+                    }
+                    if (counts[activatedCell][POLLUTION] > card.getPollutionSpaces()) {
+                        return RejectionReason.INACTIVE_CARD;
+                    }
+                }
+                int removalMask = 0;
+                int additionMask = 0;
+                try {
+                    removalMask = accumulate(transaction.inputs(), removed);
+                    if (removalMask == INVALID) {
+                        return RejectionReason.INVALID_ARGUMENT;
+                    }
+                    additionMask = accumulate(transaction.outputs(), added);
+                    if (additionMask != INVALID) {
+                        additionMask = accumulatePollution(transaction.pollution(), added, additionMask);
+                    }
+                    if (additionMask == INVALID) {
+                        return RejectionReason.INVALID_ARGUMENT;
+                    }
+
+                    final int cellMask = removalMask | additionMask;
+                    for (int mask = cellMask; mask != 0; mask &= mask - 1) {
+                        final int cell = Integer.numberOfTrailingZeros(mask);
+                        final Card card = grid.getCardAt(cell);
+                        if (card == null) {
+                            return RejectionReason.MISSING_CARD;
+                        }
+                        if ((touchedMask & (1 << cell)) == 0) {
+                            load(card, counts[cell]);
+                            touchedMask |= 1 << cell;
+                        }
+                        if (counts[cell][POLLUTION] > card.getPollutionSpaces()) {
+                            return RejectionReason.INACTIVE_CARD;
+                        }
+                        for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                            if (removed[cell][r] > counts[cell][r]) {
+                                return RejectionReason.INSUFFICIENT_RESOURCES;
+                            }
+                        }
+                    }
+                    for (int mask = cellMask; mask != 0; mask &= mask - 1) {
+                        final int cell = Integer.numberOfTrailingZeros(mask);
+                        for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                            counts[cell][r] += added[cell][r] - removed[cell][r];
+                        }
+                    }
+                } finally {
+                    clearScratch(removed, removalMask);
+                    clearScratch(added, additionMask);
+                }
+            }
+
+            // 2) apply the net difference of every touched card that changed
+            for (int mask = touchedMask; mask != 0; mask &= mask - 1) {
+                final int cell = Integer.numberOfTrailingZeros(mask);
+                final Card card = grid.getCardAt(cell);
+                final int[] delta = removed[cell];
+                boolean changed = false;
+                for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                    delta[r] = counts[cell][r] - card.getResourceCount(RESOURCES[r]);
+                    changed |= delta[r] != 0;
+                }
+                if (!changed) {
+                    continue;
+                }
+                if (undoLog != null) {
+                    undoLog.record(grid, card, delta);
+                }
+                card.adjustResources(delta);
+            }
+            return null;
+        } finally {
+            clearScratch(removed, touchedMask);
+            clearScratch(counts, touchedMask);
+        }
+    }
+
+    /**
+     * @return cell holding the card, or -1 if the card is {@code null} or not on the grid
+     */
+    private static int cellOf(final Grid grid, final Card card) {
+        if (card == null) {
+            return -1;
+        }
+        for (int cell = 0; cell < GridPosition.CELL_COUNT; cell++) {
+            if (grid.getCardAt(cell) == card) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+
+    private static void load(final Card card, final int[] counts) {
+        for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+            counts[r] = card.getResourceCount(RESOURCES[r]);
+        }
+    }
+
+    /**
+     * Allocation-free variant of {@link #execute}: accumulates deltas into
+     * the scratch buffers, validates every touched cell and applies the changes.
+     * Outputs and pollution of a cell are placed in a single step.
+     */
+    private RejectionReason executeAllocationFree(
+            final Grid grid,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
+        int removalMask = 0;
+        int additionMask = 0;
+
+        try {
+            // 1) accumulate deltas per cell
+            removalMask = accumulate(inputs, removals);
+            if (removalMask == INVALID) {
+                return RejectionReason.INVALID_ARGUMENT;
+            }
+            additionMask = accumulate(outputs, additions);
+            if (additionMask != INVALID) {
+                additionMask = accumulatePollution(pollution, additions, additionMask);
+            }
+            if (additionMask == INVALID) {
+                return RejectionReason.INVALID_ARGUMENT;
+            }
+
+            // 2) validate all touched cells
+            for (int mask = removalMask | additionMask; mask != 0; mask &= mask - 1) {
+                final int cell = Integer.numberOfTrailingZeros(mask);
+                final Card card = grid.getCardAt(cell);
+                if (card == null) {
+                    return RejectionReason.MISSING_CARD;
+                }
+                if ((removalMask & (1 << cell)) != 0 && !card.canGetResources(removals[cell])) {
+                    return removalRejection(card);
+                }
+                if ((additionMask & (1 << cell)) != 0 && !card.canPutResources(additions[cell])) {
+                    return additionRejection(card);
+                }
+            }
+
+            // 3) apply: first remove, then add resources together with pollution
+            if (undoLog != null) {
+                for (int mask = removalMask | additionMask; mask != 0; mask &= mask - 1) {
+                    final int cell = Integer.numberOfTrailingZeros(mask);
+                    undoLog.record(grid, grid.getCardAt(cell), additions[cell], removals[cell]);
+                }
+            }
+            for (int mask = removalMask; mask != 0; mask &= mask - 1) {
+                final int cell = Integer.numberOfTrailingZeros(mask);
+                grid.getCardAt(cell).getResources(removals[cell]);
+            }
+            for (int mask = additionMask; mask != 0; mask &= mask - 1) {
+                final int cell = Integer.numberOfTrailingZeros(mask);
+                grid.getCardAt(cell).putResources(additions[cell]);
+            }
+
+            return null;
+        } finally {
+            clearScratch(removals, removalMask);
+            clearScratch(additions, additionMask);
+        }
+    }
+
+    /**
+     * Adds one per resource and cell to the scratch buffer.
+     *
+     * @return mask of the touched cells, or {@link #INVALID} if a pair or its part is {@code null}
+     */
+    private static int accumulate(final List<Pair<Resource, GridPosition>> pairs, final int[][] scratch) {
+        int cellMask = 0;
+        for (Pair<Resource, GridPosition> pair : pairs) {
+            if (pair == null || pair.getLeft() == null || pair.getRight() == null) {
+                return INVALID;
+            }
+            final int cell = pair.getRight().getIndex();
+            scratch[cell][pair.getLeft().ordinal()]++;
+            cellMask |= 1 << cell;
+        }
+        return cellMask;
+    }
+
+    /**
+     * Adds one {@link Resource#POLLUTION} per position to the scratch buffer.
+     *
+     * @return {@code cellMask} with the touched cells added, or {@link #INVALID} if a position is {@code null}
+     */
+    private static int accumulatePollution(final List<GridPosition> pollution, final int[][] scratch, final int cellMask) {
+        int mask = cellMask;
+        for (GridPosition position : pollution) {
+            if (position == null) {
+                return INVALID;
+            }
+            final int cell = position.getIndex();
+            scratch[cell][POLLUTION]++;
+            mask |= 1 << cell;
+        }
+        return mask;
+    }
+
+    private static RejectionReason removalRejection(final Card card) {
+        return card.isActive() ? RejectionReason.INSUFFICIENT_RESOURCES : RejectionReason.INACTIVE_CARD;
+    }
+
+    private static RejectionReason additionRejection(final Card card) {
+        return card.isActive() ? RejectionReason.INVALID_ARGUMENT : RejectionReason.INACTIVE_CARD;
+    }
+
+    private static void clearScratch(final int[][] scratch, final int cellMask) {
+        if (cellMask == INVALID) {
+            for (int[] row : scratch) {
+                Arrays.fill(row, 0);
+            }
+            return;
+        }
+        for (int mask = cellMask; mask != 0; mask &= mask - 1) {
+            Arrays.fill(scratch[Integer.numberOfTrailingZeros(mask)], 0);
+        }
     }
 
     /**
@@ -132,25 +616,25 @@ public final class CardTransactionExecutor {
      *
      * @param grid              player's grid
      * @param resourcesToRemove resources to remove per position
-     * @return {@code true} if all removals are allowed, {@code false} otherwise
+     * @return {@code null} if all removals are allowed, otherwise the reason they are not
      */
-    private static boolean validateRemovals(final Grid grid, final Map<GridPosition, List<Resource>> resourcesToRemove) {
+    private static RejectionReason validateRemovals(final Grid grid, final Map<GridPosition, List<Resource>> resourcesToRemove) {
         for (Map.Entry<GridPosition, List<Resource>> entry : resourcesToRemove.entrySet()) {
             final GridPosition position = entry.getKey();
             final List<Resource> toRemove = entry.getValue();
 
             final Optional<Card> cardOptional = grid.getCard(position);
             if (!cardOptional.isPresent()) {
-                return false;
+                return RejectionReason.MISSING_CARD;
             }
 
             final Card card = cardOptional.get();
             if (!card.canGetResources(toRemove)) {
-                return false;
+                return removalRejection(card);
             }
         }
 
-        return true;
+        return null;
     }
 
     /**
@@ -158,25 +642,25 @@ public final class CardTransactionExecutor {
      *
      * @param grid           player's grid
      * @param resourcesToAdd resources to add per position
-     * @return {@code true} if all additions are allowed, {@code false} otherwise
+     * @return {@code null} if all additions are allowed, otherwise the reason they are not
      */
-    private static boolean validateAdditions(final Grid grid, final Map<GridPosition, List<Resource>> resourcesToAdd) {
+    private static RejectionReason validateAdditions(final Grid grid, final Map<GridPosition, List<Resource>> resourcesToAdd) {
         for (Map.Entry<GridPosition, List<Resource>> entry : resourcesToAdd.entrySet()) {
             final GridPosition position = entry.getKey();
             final List<Resource> toAdd = entry.getValue();
 
             final Optional<Card> cardOptional = grid.getCard(position);
             if (!cardOptional.isPresent()) {
-                return false;
+                return RejectionReason.MISSING_CARD;
             }
 
             final Card card = cardOptional.get();
             if (!card.canPutResources(toAdd)) {
-                return false;
+                return additionRejection(card);
             }
         }
 
-        return true;
+        return null;
     }
 
     /**
@@ -233,4 +717,102 @@ public final class CardTransactionExecutor {
             }
         }
     }
+
+    /**
+     * Stack of inverse resource changes. Every entry is one card and one
+     * resource with the amount to add back; entries of one change are pushed
+     * together, so a rollback adjusts each card once per logged change.
+     * Consecutive changes of one grid are reverted under one write lock, so
+     * readers of a concurrent grid see a rollback to a mark as one change.
+     */
+    private static final class UndoLog {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private Grid[] grids = new Grid[INITIAL_CAPACITY];
+        private Card[] cards = new Card[INITIAL_CAPACITY];
+        private int[] resources = new int[INITIAL_CAPACITY];
+        private int[] amounts = new int[INITIAL_CAPACITY];
+        private final int[] inverse = new int[Card.RESOURCE_COUNT];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        /**
+         * Logs a change of the card given as a single delta vector.
+         */
+        void record(final Grid grid, final Card card, final int[] delta) {
+            for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                if (delta[r] != 0) {
+                    push(grid, card, r, -delta[r]);
+                }
+            }
+        }
+
+        /**
+         * Logs a change of the card given as added and removed amounts.
+         */
+        void record(final Grid grid, final Card card, final int[] added, final int[] removed) {
+            for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                if (added[r] != removed[r]) {
+                    push(grid, card, r, removed[r] - added[r]);
+                }
+            }
+        }
+
+        void rollbackTo(final int mark) {
+            rollbackTo(mark, true);
+        }
+
+        void rollbackTo(final int mark, final boolean revert) {
+            if (mark < 0 || mark > size) {
+                throw new IllegalArgumentException("Invalid undo mark: " + mark);
+            }
+            while (size > mark) {
+                // revert all consecutive entries of one grid under a single write lock
+                final Grid grid = grids[size - 1];
+                final long stamp = grid.lockWrite();
+                try {
+                    while (size > mark && grids[size - 1] == grid) {
+                        revertCard(mark, revert);
+                    }
+                    grid.commit();
+                } finally {
+                    grid.unlockWrite(stamp);
+                }
+            }
+        }
+
+        /**
+         * Pops all consecutive entries of the topmost card and reverts them at once.
+         */
+        private void revertCard(final int mark, final boolean revert) {
+            final Card card = cards[size - 1];
+            while (size > mark && cards[size - 1] == card) {
+                size--;
+                inverse[resources[size]] += amounts[size];
+                grids[size] = null;
+                cards[size] = null;
+            }
+            if (revert) {
+                card.adjustResources(inverse);
+            }
+            Arrays.fill(inverse, 0);
+        }
+
+        private void push(final Grid grid, final Card card, final int resource, final int amount) {
+            if (size == cards.length) {
+                grids = Arrays.copyOf(grids, size * 2);
+                cards = Arrays.copyOf(cards, size * 2);
+                resources = Arrays.copyOf(resources, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+            }
+            grids[size] = grid;
+            cards[size] = card;
+            resources[size] = resource;
+            amounts[size] = amount;
+            size++;
+        }
+    }
 }
@@ -0,0 +1,300 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Effect tree flattened into a list of alternatives over packed resource-count signatures.
+ *
+ * A signature stores the count of every {@link Resource} in {@value #BITS_PER_RESOURCE} bits,
+ * so two resource lists have the same signature exactly when they are equal as multisets.
+ * Checking an alternative is then a couple of integer comparisons.
+ * Effects that do not know how to compile themselves are kept as opaque parts
+ * and checked by delegation.
+ */
+public final class CompiledEffect {
+    /**
+     * Number of bits used for the count of a single resource type.
+     */
+    public static final int BITS_PER_RESOURCE = 7;
+
+    /**
+     * Largest count of a single resource type that fits into a signature.
+     */
+    public static final int MAX_COUNT = (1 << BITS_PER_RESOURCE) - 1;
+
+    /**
+     * Signature of a list that contains {@code null} or more than {@link #MAX_COUNT}
+     * resources of one type. It never matches any compiled alternative.
+     */
+    public static final long INVALID_SIGNATURE = -1L;
+
+    private final boolean[] arbitrary;
+    private final long[] inputs;
+    private final int[] inputSizes;
+    private final long[] outputs;
+    private final int[] pollutions;
+    private final Effect[] opaque;
+
+    private CompiledEffect(
+            final boolean[] arbitrary,
+            final long[] inputs,
+            final int[] inputSizes,
+            final long[] outputs,
+            final int[] pollutions,
+            final Effect[] opaque) {
+        this.arbitrary = arbitrary;
+        this.inputs = inputs;
+        this.inputSizes = inputSizes;
+        this.outputs = outputs;
+        this.pollutions = pollutions;
+        this.opaque = opaque;
+    }
+
+    /**
+     * Compiles an effect with a fixed input multiset.
+     *
+     * @param from      resources paid as input
+     * @param to        resources gained as output
+     * @param pollution pollution produced
+     * @return the compiled effect
+     * @throws IllegalArgumentException if a list cannot be packed into a signature
+     */
+    static CompiledEffect fixed(final List<Resource> from, final List<Resource> to, final int pollution) {
+        return new CompiledEffect(
+                new boolean[] {false},
+                new long[] {requireSignature(from)},
+                new int[] {from.size()},
+                new long[] {requireSignature(to)},
+                new int[] {pollution},
+                new Effect[0]);
+    }
+
+    /**
+     * Compiles an effect that accepts any input of the given size.
+     *
+     * @param from      number of resources paid as input
+     * @param to        resources gained as output
+     * @param pollution pollution produced
+     * @return the compiled effect
+     * @throws IllegalArgumentException if the output cannot be packed into a signature
+     */
+    static CompiledEffect arbitrary(final int from, final List<Resource> to, final int pollution) {
+        return new CompiledEffect(
+                new boolean[] {true},
+                new long[] {0L},
+                new int[] {from},
+                new long[] {requireSignature(to)},
+                new int[] {pollution},
+                new Effect[0]);
+    }
+
+    /**
+     * Wraps an effect that cannot be compiled; checks are delegated to it.
+     *
+     * @param effect the effect to delegate to
+     * @return the compiled effect
+     */
+    static CompiledEffect opaque(final Effect effect) {
+        Objects.requireNonNull(effect, "Effect cannot be null");
+        return new CompiledEffect(new boolean[0], new long[0], new int[0], new long[0], new int[0], new Effect[] {effect});
+    }
+
+    /**
+     * Merges compiled effects into one that matches when any of them matches.
+     *
+     * @param effects compiled effects to merge
+     * @return the compiled effect
+     */
+    static CompiledEffect anyOf(final List<CompiledEffect> effects) {
+        int count = 0;
+        final List<Effect> opaqueParts = new ArrayList<>();
+        for (CompiledEffect effect : effects) {
+            count += effect.inputs.length;
+            opaqueParts.addAll(List.of(effect.opaque));
+        }
+
+        final boolean[] arbitrary = new boolean[count];
+        final long[] inputs = new long[count];
+        final int[] inputSizes = new int[count];
+        final long[] outputs = new long[count];
+        final int[] pollutions = new int[count];
+        int offset = 0;
+        for (CompiledEffect effect : effects) {
+            final int length = effect.inputs.length;
+            System.arraycopy(effect.arbitrary, 0, arbitrary, offset, length);
+            System.arraycopy(effect.inputs, 0, inputs, offset, length);
+            System.arraycopy(effect.inputSizes, 0, inputSizes, offset, length);
+            System.arraycopy(effect.outputs, 0, outputs, offset, length);
+            System.arraycopy(effect.pollutions, 0, pollutions, offset, length);
+            offset += length;
+        }
+
+        return new CompiledEffect(arbitrary, inputs, inputSizes, outputs, pollutions, opaqueParts.toArray(new Effect[0]));
+    }
+
+    /**
+     * Packs a resource list into a signature.
+     *
+     * @param resources resources to pack
+     * @return the signature, or {@link #INVALID_SIGNATURE} if the list cannot be packed
+     */
+    public static long signature(final List<Resource> resources) {
+        long signature = 0L;
+        for (Resource resource : resources) {
+            if (resource == null) {
+                return INVALID_SIGNATURE;
+            }
+            final int shift = resource.ordinal() * BITS_PER_RESOURCE;
+            if (((signature >>> shift) & MAX_COUNT) == MAX_COUNT) {
+                return INVALID_SIGNATURE;
+            }
+            signature += 1L << shift;
+        }
+        return signature;
+    }
+
+    /**
+     * Packs a count vector into a signature.
+     *
+     * @param counts resource counts indexed by {@link Resource#ordinal()}
+     * @return the signature, or {@link #INVALID_SIGNATURE} if a count is out of range
+     */
+    public static long signature(final int[] counts) {
+        long signature = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] < 0 || counts[i] > MAX_COUNT) {
+                return INVALID_SIGNATURE;
+            }
+            signature |= (long) counts[i] << (i * BITS_PER_RESOURCE);
+        }
+        return signature;
+    }
+
+    /**
+     * Reads the count of one resource type from a signature.
+     *
+     * @param signature a valid signature
+     * @param resource  resource type to read
+     * @return number of resources of the given type
+     */
+    public static int count(final long signature, final Resource resource) {
+        return (int) ((signature >>> (resource.ordinal() * BITS_PER_RESOURCE)) & MAX_COUNT);
+    }
+
+    private static long requireSignature(final List<Resource> resources) {
+        final long signature = signature(resources);
+        if (signature == INVALID_SIGNATURE) {
+            throw new IllegalArgumentException("Resources cannot be packed into a signature: " + resources);
+        }
+        return signature;
+    }
+
+    /**
+     * Checks the effect against the given activation, see {@link Effect#check}.
+     *
+     * @param input     resources the player wants to pay
+     * @param output    resources the player should gain
+     * @param pollution pollution produced by this effect
+     * @return {@code true} if any alternative of the effect matches, {@code false} otherwise
+     */
+    public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
+        if (input == null || output == null) {
+            return false;
+        }
+        if (inputs.length > 0) {
+            final long inputSignature = signature(input);
+            final long outputSignature = signature(output);
+            if (check(inputSignature, input.size(), outputSignature, pollution)) {
+                return true;
+            }
+        }
+        for (Effect effect : opaque) {
+            if (effect.check(input, output, pollution)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks the compiled alternatives against packed signatures.
+     * Opaque parts are not consulted, see {@link #isExact()}.
+     *
+     * @param inputSignature  signature of the resources the player wants to pay
+     * @param inputSize       number of resources the player wants to pay
+     * @param outputSignature signature of the resources the player should gain
+     * @param pollution       pollution produced by this effect
+     * @return {@code true} if any compiled alternative matches, {@code false} otherwise
+     */
+    public boolean check(final long inputSignature, final int inputSize, final long outputSignature, final int pollution) {
+        if (inputSignature == INVALID_SIGNATURE || outputSignature == INVALID_SIGNATURE) {
+            return false;
+        }
+        for (int i = 0; i < inputs.length; i++) {
+            if (outputs[i] == outputSignature
+                    && pollutions[i] == pollution
+                    && inputSizes[i] == inputSize
+                    && (arbitrary[i] || inputs[i] == inputSignature)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of compiled alternatives
+     */
+    int alternativeCount() {
+        return inputs.length;
+    }
+
+    /**
+     * @param alternative alternative index
+     * @return {@code true} if the alternative accepts any input of {@link #inputSize(int)} resources
+     */
+    boolean isArbitrary(final int alternative) {
+        return arbitrary[alternative];
+    }
+
+    /**
+     * @param alternative alternative index
+     * @return input signature of a fixed alternative
+     */
+    long inputSignature(final int alternative) {
+        return inputs[alternative];
+    }
+
+    /**
+     * @param alternative alternative index
+     * @return number of input resources of the alternative
+     */
+    int inputSize(final int alternative) {
+        return inputSizes[alternative];
+    }
+
+    /**
+     * @param alternative alternative index
+     * @return output signature of the alternative
+     */
+    long outputSignature(final int alternative) {
+        return outputs[alternative];
+    }
+
+    /**
+     * @param alternative alternative index
+     * @return pollution produced by the alternative
+     */
+    int pollution(final int alternative) {
+        return pollutions[alternative];
+    }
+
+    /**
+     * @return {@code true} if the whole effect tree was compiled, so that
+     * {@link #check(long, int, long, int)} gives the complete answer
+     */
+    public boolean isExact() {
+        return opaque.length == 0;
+    }
+}
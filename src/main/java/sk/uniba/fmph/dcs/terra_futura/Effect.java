@@ -24,6 +24,17 @@ public interface Effect {
      */
     boolean hasAssistance();
 
+    /**
+     * Compiles the effect into count-vector alternatives, so that checks
+     * no longer depend on list order or allocate.
+     * Effects that cannot be compiled are checked by delegation.
+     *
+     * @return the compiled form of this effect
+     */
+    default CompiledEffect compile() {
+        return CompiledEffect.opaque(this);
+    }
+
     /**
      * @return a textual representation of the effect's state.
      */
@@ -1,5 +1,6 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -9,6 +10,7 @@ import java.util.stream.Collectors;
  */
 public final class EffectOr implements Effect {
     private final List<Effect> effects;
+    private final CompiledEffect compiled;
 
     /**
      * Creates a composite from a non-empty list of effects.
@@ -22,11 +24,22 @@ public final class EffectOr implements Effect {
         }
 
         this.effects = List.copyOf(effects);
+
+        final List<CompiledEffect> compiledEffects = new ArrayList<>(this.effects.size());
+        for (Effect effect : this.effects) {
+            compiledEffects.add(effect.compile());
+        }
+        this.compiled = CompiledEffect.anyOf(compiledEffects);
     }
 
     @Override
     public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
-        return effects.stream().anyMatch(effect -> effect.check(input, output, pollution));
+        return compiled.check(input, output, pollution);
+    }
+
+    @Override
+    public CompiledEffect compile() {
+        return compiled;
     }
 
     @Override
@@ -39,4 +52,11 @@ public final class EffectOr implements Effect {
         String joinedEffects = effects.stream().map(Effect::state).collect(Collectors.joining(", "));
         return String.format("EffectOr{%s}", joinedEffects);
     }
+
+    /**
+     * @return child effects
+     */
+    List<Effect> getEffects() {
+        return effects;
+    }
 }
@@ -0,0 +1,547 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Append-only binary log of successful game actions.
+ * <p>
+ * The journal is a directory of fixed-size segment files, each mapped into
+ * memory and written with plain stores. Every segment starts with
+ * {@link #MAGIC} followed by 32-bit records:
+ * <pre>
+ *   bits 24..31  kind
+ *   bits 16..23  first operand  (resource ordinal, pile slot, x)
+ *   bits  8..15  second operand (cell index, y)
+ *   bits  0..7   unused
+ * </pre>
+ * The commit record of an activation with assistance is the exception: its
+ * first operand is {@link #ASSISTED} and bits 0..15 hold the assisting player
+ * identifier, so it has no second operand.
+ * <pre>
+ *   bits 24..31  kind ({@link #ACTIVATION})
+ *   bits 16..23  {@link #ASSISTED}
+ *   bits  0..15  assisting player (0..{@link #MAX_ASSISTING_PLAYER})
+ * </pre>
+ * A card activation is written as one record per moved resource followed by
+ * a commit record. A batch of activations is written as the records of each
+ * activation followed by a {@link #BATCH_STEP} record, the last one replaced by
+ * a single {@link #BATCH} commit record, so a batch is replayed as a whole or
+ * not at all. A pattern selection as one record per cell followed by a
+ * commit record, and a card move as a single record. An event never spans two
+ * segments, and a zero record marks the end of the written part of a segment.
+ * Records of an event without its commit, left behind by a crash, are ignored
+ * by {@link JournalReplay} and overwritten when the journal is reopened.
+ */
+public final class EventJournal implements AutoCloseable {
+    /**
+     * First word of every segment file ("TFJ1").
+     */
+    public static final int MAGIC = 0x54464A31;
+
+    /**
+     * Default size of one segment file in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 20;
+
+    static final int RECORD_BYTES = Integer.BYTES;
+    static final int END = 0;
+    static final int INPUT = 1;
+    static final int OUTPUT = 2;
+    static final int POLLUTION = 3;
+    static final int ACTIVATION = 4;
+    static final int MOVE_CARD = 5;
+    static final int PATTERN_CELL = 6;
+    static final int PATTERN = 7;
+    static final int BATCH_STEP = 8;
+    static final int BATCH = 9;
+
+    /**
+     * Flag set in the first operand of an {@link #ACTIVATION} record activated with assistance.
+     */
+    static final int ASSISTED = 1;
+
+    /**
+     * Largest assisting player identifier an {@link #ACTIVATION} record can hold.
+     */
+    static final int MAX_ASSISTING_PLAYER = 0xFFFF;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".tfj";
+
+    private final Path directory;
+    private final int segmentSize;
+    private int segmentNumber;
+    private MappedByteBuffer segment;
+    private int position;
+    private int[] pending = new int[16];
+    private int pendingCount;
+
+    private EventJournal(final Path directory, final int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens a journal in the given directory with the default segment size,
+     * see {@link #open(Path, int)}.
+     *
+     * @param directory directory holding the segment files
+     * @return the journal, positioned after the last complete event
+     * @throws IOException if the directory or a segment cannot be accessed
+     */
+    public static EventJournal open(final Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens a journal in the given directory, creating it if needed.
+     * New events are appended after the last complete event already present.
+     *
+     * @param directory   directory holding the segment files
+     * @param segmentSize size of newly created segment files in bytes
+     * @return the journal, positioned after the last complete event
+     * @throws IOException if the directory or a segment cannot be accessed
+     * @throws IllegalArgumentException if the segment size is not a multiple of 4 of at least 8 bytes
+     * (room for two records) or an existing file is not a journal segment
+     */
+    public static EventJournal open(final Path directory, final int segmentSize) throws IOException {
+        Objects.requireNonNull(directory, "directory cannot be null");
+        if (segmentSize < 2 * RECORD_BYTES || segmentSize % RECORD_BYTES != 0) {
+            throw new IllegalArgumentException(
+                    "Segment size must be a multiple of " + RECORD_BYTES + " of at least " + 2 * RECORD_BYTES);
+        }
+        Files.createDirectories(directory);
+
+        final EventJournal journal = new EventJournal(directory, segmentSize);
+        final List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            journal.startSegment(0);
+        } else {
+            journal.resume(segments.get(segments.size() - 1), segments.size() - 1);
+        }
+        return journal;
+    }
+
+    /**
+     * Lists the segment files of a journal in the order they were written.
+     *
+     * @param directory directory holding the segment files
+     * @return paths of the segment files
+     * @throws IOException if the directory cannot be listed
+     */
+    static List<Path> segments(final Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        final String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static int record(final int kind, final int first, final int second) {
+        return kind << 24 | (first & 0xFF) << 16 | (second & 0xFF) << 8;
+    }
+
+    static int kind(final int record) {
+        return record >>> 24;
+    }
+
+    static int first(final int record) {
+        return (record >>> 16) & 0xFF;
+    }
+
+    static int second(final int record) {
+        return (record >>> 8) & 0xFF;
+    }
+
+    /**
+     * Records a card taken from a pile and put onto the grid.
+     *
+     * @param pileIndex index of the card in the pile (1..{@link Pile#MAX_VISIBLE_CARDS})
+     * @param position  where the card was put
+     * @throws IllegalArgumentException if the event cannot be recorded, see {@link #prepareMoveCard}
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public void recordMoveCard(final int pileIndex, final GridPosition position) {
+        requirePrepared(prepareMoveCard(pileIndex, position));
+        commit();
+    }
+
+    /**
+     * Records a successful card activation.
+     *
+     * @param inputs    resources paid (resource, position)
+     * @param outputs   resources gained (resource, position)
+     * @param pollution positions that received pollution
+     * @throws IllegalArgumentException if the event cannot be recorded, see {@link #prepareActivation}
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public void recordActivation(
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
+        requirePrepared(prepareActivation(inputs, outputs, pollution));
+        commit();
+    }
+
+    /**
+     * Records a successful card activation with assistance.
+     *
+     * @param assistingPlayer identifier of the helping player (0..65535)
+     * @param inputs          resources paid (resource, position)
+     * @param outputs         resources gained (resource, position)
+     * @param pollution       positions that received pollution
+     * @throws IllegalArgumentException if the event cannot be recorded, see {@link #prepareAssistedActivation}
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public void recordAssistedActivation(
+            final int assistingPlayer,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
+        requirePrepared(prepareAssistedActivation(assistingPlayer, inputs, outputs, pollution));
+        commit();
+    }
+
+    /**
+     * Records a successful batch of activations, applied as one step.
+     *
+     * @param transactions resource transfers of the activations, in the order they were applied
+     * @throws IllegalArgumentException if the event cannot be recorded, see {@link #prepareBatch}
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public void recordBatch(final List<CardTransaction> transactions) {
+        requirePrepared(prepareBatch(transactions));
+        commit();
+    }
+
+    /**
+     * Records a selected activation pattern. Coordinates are stored as signed bytes.
+     *
+     * @param pattern selected (x, y) coordinates
+     * @throws IllegalArgumentException if the event cannot be recorded, see {@link #preparePatternSelection}
+     * @throws IllegalStateException    if the journal is closed
+     */
+    public void recordPatternSelection(final Collection<SimpleEntry<Integer, Integer>> pattern) {
+        requirePrepared(preparePatternSelection(pattern));
+        commit();
+    }
+
+    /**
+     * Prepares the event of {@link #recordMoveCard} to be written by {@link #commit()}.
+     * <p>
+     * Actions prepare their event before they change the game and commit it after:
+     * a prepared event is known to fit into the current segment, which is started
+     * here if needed, so the commit can no longer fail. Preparing an event
+     * replaces one that was prepared but not committed.
+     *
+     * @param pileIndex index of the card in the pile (1..{@link Pile#MAX_VISIBLE_CARDS})
+     * @param position  where the card is put
+     * @return {@code true} if the event was prepared, {@code false} if an operand
+     * is {@code null} or out of range
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException  if a new segment cannot be created
+     */
+    boolean prepareMoveCard(final int pileIndex, final GridPosition position) {
+        requireOpen();
+        pendingCount = 0;
+        if (position == null || pileIndex < 0 || pileIndex > 0xFF) {
+            return false;
+        }
+        add(record(MOVE_CARD, pileIndex, position.getIndex()));
+        return reserve();
+    }
+
+    /**
+     * Prepares the event of {@link #recordActivation}, see {@link #prepareMoveCard}.
+     *
+     * @param inputs    resources paid (resource, position)
+     * @param outputs   resources gained (resource, position)
+     * @param pollution positions that receive pollution
+     * @return {@code true} if the event was prepared, {@code false} if an element
+     * is {@code null} or the event does not fit into a segment
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException  if a new segment cannot be created
+     */
+    boolean prepareActivation(
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
+        requireOpen();
+        pendingCount = 0;
+        if (!addTransfers(inputs, outputs, pollution)) {
+            return false;
+        }
+        add(record(ACTIVATION, 0, 0));
+        return reserve();
+    }
+
+    /**
+     * Prepares the event of {@link #recordAssistedActivation}, see {@link #prepareMoveCard}.
+     *
+     * @param assistingPlayer identifier of the helping player (0..{@link #MAX_ASSISTING_PLAYER})
+     * @param inputs          resources paid (resource, position)
+     * @param outputs         resources gained (resource, position)
+     * @param pollution       positions that receive pollution
+     * @return {@code true} if the event was prepared, {@code false} if the player identifier
+     * does not fit into a record, an element is {@code null} or the event does not fit into a segment
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException  if a new segment cannot be created
+     */
+    boolean prepareAssistedActivation(
+            final int assistingPlayer,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
+        requireOpen();
+        pendingCount = 0;
+        if (assistingPlayer < 0 || assistingPlayer > MAX_ASSISTING_PLAYER
+                || !addTransfers(inputs, outputs, pollution)) {
+            return false;
+        }
+        add(record(ACTIVATION, ASSISTED, 0) | assistingPlayer);
+        return reserve();
+    }
+
+    /**
+     * Prepares the event of {@link #recordBatch}, see {@link #prepareMoveCard}.
+     *
+     * @param transactions resource transfers of the activations, in the order they are applied
+     * @return {@code true} if the event was prepared, {@code false} if an element
+     * is {@code null} or the event does not fit into a segment
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException  if a new segment cannot be created
+     */
+    boolean prepareBatch(final List<CardTransaction> transactions) {
+        requireOpen();
+        pendingCount = 0;
+        if (transactions == null) {
+            return false;
+        }
+        for (CardTransaction transaction : transactions) {
+            if (transaction == null
+                    || !addTransfers(transaction.inputs(), transaction.outputs(), transaction.pollution())) {
+                pendingCount = 0;
+                return false;
+            }
+            add(record(BATCH_STEP, 0, 0));
+        }
+        // the commit record ends the last activation instead of a step record
+        if (pendingCount > 0) {
+            pendingCount--;
+        }
+        add(record(BATCH, 0, 0));
+        return reserve();
+    }
+
+    /**
+     * Prepares the event of {@link #recordPatternSelection}, see {@link #prepareMoveCard}.
+     *
+     * @param pattern selected (x, y) coordinates
+     * @return {@code true} if the event was prepared, {@code false} if a coordinate
+     * is {@code null} or outside -128..127, or the event does not fit into a segment
+     * @throws IllegalStateException if the journal is closed
+     * @throws UncheckedIOException  if a new segment cannot be created
+     */
+    boolean preparePatternSelection(final Collection<SimpleEntry<Integer, Integer>> pattern) {
+        requireOpen();
+        pendingCount = 0;
+        if (pattern == null) {
+            return false;
+        }
+        for (SimpleEntry<Integer, Integer> cell : pattern) {
+            if (cell == null || !isSignedByte(cell.getKey()) || !isSignedByte(cell.getValue())) {
+                pendingCount = 0;
+                return false;
+            }
+            add(record(PATTERN_CELL, cell.getKey(), cell.getValue()));
+        }
+        add(record(PATTERN, 0, 0));
+        return reserve();
+    }
+
+    /**
+     * Writes the prepared event, the commit record last.
+     *
+     * @throws IllegalStateException if the journal is closed or no event is prepared
+     */
+    void commit() {
+        requireOpen();
+        if (pendingCount == 0) {
+            throw new IllegalStateException("No event prepared");
+        }
+        final int bytes = pendingCount * RECORD_BYTES;
+        for (int i = 0; i < pendingCount - 1; i++) {
+            segment.putInt(position + i * RECORD_BYTES, pending[i]);
+        }
+        segment.putInt(position + bytes - RECORD_BYTES, pending[pendingCount - 1]);
+        position += bytes;
+        pendingCount = 0;
+    }
+
+    /**
+     * Forces the written events to the storage device.
+     *
+     * @throws IllegalStateException if the journal is closed
+     */
+    public void sync() {
+        requireOpen();
+        segment.force();
+    }
+
+    /**
+     * Forces the written events to the storage device and releases the current segment.
+     * Closing a closed journal has no effect; recording into it throws {@link IllegalStateException}.
+     */
+    @Override
+    public void close() {
+        if (segment == null) {
+            return;
+        }
+        sync();
+        segment = null;
+    }
+
+    private void requireOpen() {
+        if (segment == null) {
+            throw new IllegalStateException("Journal is closed");
+        }
+    }
+
+    private static void requirePrepared(final boolean prepared) {
+        if (!prepared) {
+            throw new IllegalArgumentException("Event cannot be recorded");
+        }
+    }
+
+    private static boolean isSignedByte(final Integer value) {
+        return value != null && value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE;
+    }
+
+    private boolean addTransfers(
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
+        if (inputs == null || outputs == null || pollution == null
+                || !addResources(INPUT, inputs) || !addResources(OUTPUT, outputs)) {
+            pendingCount = 0;
+            return false;
+        }
+        for (GridPosition position : pollution) {
+            if (position == null) {
+                pendingCount = 0;
+                return false;
+            }
+            add(record(POLLUTION, 0, position.getIndex()));
+        }
+        return true;
+    }
+
+    private boolean addResources(final int kind, final List<Pair<Resource, GridPosition>> pairs) {
+        for (Pair<Resource, GridPosition> pair : pairs) {
+            if (pair == null || pair.getLeft() == null || pair.getRight() == null) {
+                return false;
+            }
+            add(record(kind, pair.getLeft().ordinal(), pair.getRight().getIndex()));
+        }
+        return true;
+    }
+
+    private void add(final int record) {
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pending.length * 2);
+        }
+        pending[pendingCount++] = record;
+    }
+
+    /**
+     * Makes room for the pending event, moving to a new segment if it does not
+     * fit into the current one.
+     *
+     * @return {@code false}, with the event dropped, if it does not fit into any segment
+     */
+    private boolean reserve() {
+        final int bytes = pendingCount * RECORD_BYTES;
+        if (bytes > segmentSize - RECORD_BYTES) {
+            pendingCount = 0;
+            return false;
+        }
+        if (position + bytes > segment.capacity()) {
+            try {
+                startSegment(segmentNumber + 1);
+            } catch (IOException e) {
+                pendingCount = 0;
+                throw new UncheckedIOException(e);
+            }
+        }
+        return true;
+    }
+
+    private void startSegment(final int number) throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        final Path path = directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+        segment = map(path, segmentSize);
+        segmentNumber = number;
+        segment.putInt(0, MAGIC);
+        position = RECORD_BYTES;
+    }
+
+    /**
+     * Continues writing into an existing segment after its last complete event,
+     * clearing records of an event that was not committed.
+     */
+    private void resume(final Path path, final int number) throws IOException {
+        final int size = (int) Files.size(path);
+        segment = map(path, size);
+        segmentNumber = number;
+        if (size < RECORD_BYTES || segment.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a journal segment: " + path);
+        }
+
+        int end = RECORD_BYTES;
+        int offset = RECORD_BYTES;
+        while (offset < size) {
+            final int kind = kind(segment.getInt(offset));
+            if (kind == END) {
+                break;
+            }
+            offset += RECORD_BYTES;
+            if (kind == ACTIVATION || kind == MOVE_CARD || kind == PATTERN || kind == BATCH) {
+                end = offset;
+            }
+        }
+        for (int i = end; i < offset; i += RECORD_BYTES) {
+            segment.putInt(i, END);
+        }
+        position = end;
+    }
+
+    private static MappedByteBuffer map(final Path path, final int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+}
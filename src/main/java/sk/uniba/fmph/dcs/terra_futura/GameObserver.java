@@ -1,22 +1,76 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Manages observers interested in game state updates.
  * <p>
  * Each observer is registered under a player identifier and receives
  * string representations of the game state relevant to that player.
+ * <p>
+ * By default observers are notified synchronously on the calling thread.
+ * A dispatcher created by {@link #async(int)} instead gives every observer
+ * a bounded mailbox drained by its own virtual thread: {@link #notifyAll(Map)}
+ * only enqueues, and a mailbox that is full is coalesced down to the latest
+ * state, so a slow observer never stalls the game. The dispatcher itself is
+ * meant to be used from the game thread only.
  */
-public final class GameObserver {
+public final class GameObserver implements AutoCloseable {
 
     /**
      * Mapping from player id to the corresponding observer.
      */
     private final Map<Integer, TerraFuturaObserverInterface> observers = new HashMap<>();
 
+    /**
+     * Mapping from player id to the observer's mailbox, used only in the asynchronous mode.
+     */
+    private final Map<Integer, Mailbox> mailboxes = new HashMap<>();
+
+    /**
+     * Mailbox capacity, or 0 in the synchronous mode.
+     */
+    private final int mailboxCapacity;
+
+    /**
+     * Creates a dispatcher that notifies observers synchronously.
+     */
+    public GameObserver() {
+        this.mailboxCapacity = 0;
+    }
+
+    private GameObserver(final int mailboxCapacity) {
+        if (mailboxCapacity < 1) {
+            throw new IllegalArgumentException("Mailbox capacity must be positive");
+        }
+        this.mailboxCapacity = mailboxCapacity;
+    }
+
+    /**
+     * Creates a dispatcher that notifies every observer on its own virtual thread.
+     *
+     * @param mailboxCapacity maximum number of states waiting for one observer;
+     *                        when exceeded, only the latest state is kept
+     * @return the asynchronous dispatcher; call {@link #close()} to stop its threads
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public static GameObserver async(final int mailboxCapacity) {
+        return new GameObserver(mailboxCapacity);
+    }
+
+    /**
+     * @return {@code true} if observers are notified asynchronously
+     */
+    public boolean isAsync() {
+        return mailboxCapacity > 0;
+    }
+
     /**
      * Registers an observer for the given player identifier.
      * <p>
@@ -27,6 +81,12 @@ public final class GameObserver {
      */
     public void addObserver(final int playerId, final TerraFuturaObserverInterface observer) {
         observers.put(playerId, Objects.requireNonNull(observer, "Observer cannot be null"));
+        if (isAsync()) {
+            final Mailbox previous = mailboxes.put(playerId, new Mailbox(playerId, observer, mailboxCapacity));
+            if (previous != null) {
+                previous.close();
+            }
+        }
     }
 
     /**
@@ -53,6 +113,10 @@ public final class GameObserver {
      */
     public void removeObserver(final int playerId) {
         observers.remove(playerId);
+        final Mailbox mailbox = mailboxes.remove(playerId);
+        if (mailbox != null) {
+            mailbox.close();
+        }
     }
 
     /**
@@ -76,10 +140,148 @@ public final class GameObserver {
             final int playerId = entry.getKey();
             final String state = entry.getValue();
 
+            if (isAsync()) {
+                final Mailbox mailbox = mailboxes.get(playerId);
+                if (mailbox != null) {
+                    mailbox.offer(state);
+                }
+                continue;
+            }
+
             final TerraFuturaObserverInterface observer = observers.get(playerId);
             if (observer != null) {
                 observer.notify(state);
             }
         }
     }
+
+    /**
+     * Returns delivery statistics of an asynchronously notified observer.
+     *
+     * @param playerId the identifier of the player
+     * @return the statistics, or empty if the dispatcher is synchronous
+     * or no observer is registered for the player
+     */
+    public Optional<ObserverLag> getLag(final int playerId) {
+        final Mailbox mailbox = mailboxes.get(playerId);
+        return mailbox == null ? Optional.empty() : Optional.of(mailbox.lag());
+    }
+
+    /**
+     * Stops the delivery threads of all observers. States still waiting
+     * in the mailboxes are discarded. Has no effect in the synchronous mode.
+     */
+    @Override
+    public void close() {
+        for (Mailbox mailbox : mailboxes.values()) {
+            mailbox.close();
+        }
+        mailboxes.clear();
+    }
+
+    /**
+     * Bounded, coalescing mailbox of one observer with its delivery thread.
+     */
+    private static final class Mailbox {
+        private final TerraFuturaObserverInterface observer;
+        private final int capacity;
+        private final ArrayDeque<String> states = new ArrayDeque<>();
+        private final ArrayDeque<Long> enqueuedAt = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition notEmpty = lock.newCondition();
+
+        private boolean closed;
+        private long published;
+        private long delivered;
+        private long coalesced;
+        private long failed;
+        private long maxDelayNanos;
+        private long lastDelayNanos;
+
+        Mailbox(final int playerId, final TerraFuturaObserverInterface observer, final int capacity) {
+            this.observer = observer;
+            this.capacity = capacity;
+            Thread.ofVirtual().name("game-observer-" + playerId).start(this::run);
+        }
+
+        void offer(final String state) {
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                if (states.size() >= capacity) {
+                    // the consumer fell behind, keep only the latest state
+                    coalesced += states.size();
+                    states.clear();
+                    enqueuedAt.clear();
+                }
+                states.addLast(state);
+                enqueuedAt.addLast(System.nanoTime());
+                published++;
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        ObserverLag lag() {
+            lock.lock();
+            try {
+                return new ObserverLag(published, delivered, coalesced, failed, states.size(), maxDelayNanos, lastDelayNanos);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                states.clear();
+                enqueuedAt.clear();
+                notEmpty.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            while (true) {
+                final String state;
+                lock.lock();
+                try {
+                    while (states.isEmpty() && !closed) {
+                        notEmpty.awaitUninterruptibly();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    state = states.pollFirst();
+                    lastDelayNanos = System.nanoTime() - enqueuedAt.pollFirst();
+                    maxDelayNanos = Math.max(maxDelayNanos, lastDelayNanos);
+                } finally {
+                    lock.unlock();
+                }
+
+                boolean success = true;
+                try {
+                    observer.notify(state);
+                } catch (RuntimeException e) {
+                    success = false;
+                }
+
+                lock.lock();
+                try {
+                    if (success) {
+                        delivered++;
+                    } else {
+                        failed++;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
 }
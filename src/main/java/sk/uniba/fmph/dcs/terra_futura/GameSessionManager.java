@@ -0,0 +1,248 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Hosts many independent games in one JVM.
+ * <p>
+ * Every game is assigned to one of a fixed number of shards, and each shard
+ * runs its actions one by one on a single thread. The state of a game is
+ * therefore only ever touched by its shard thread, and game classes such as
+ * {@link Grid} or {@link Pile} need no locking. Actions of one game run in
+ * the order they were submitted.
+ * <p>
+ * Admission is bounded twice: at most {@code maxGames} games may be open at
+ * once, and each shard queues at most {@code maxQueueDepth} actions. Work
+ * above either limit is refused instead of piling up.
+ *
+ * @param <G> type of the per-game state, created by the factory passed to {@link #open}
+ */
+public final class GameSessionManager<G> implements AutoCloseable {
+    private final Map<Integer, Session<G>> sessions = new ConcurrentHashMap<>();
+    private final Shard[] shards;
+    private final int maxGames;
+    private final AtomicInteger gameCount = new AtomicInteger();
+
+    /**
+     * Creates a manager and starts its shard threads.
+     *
+     * @param shardCount    number of shards, each with its own thread
+     * @param maxGames      maximum number of games open at once
+     * @param maxQueueDepth maximum number of actions waiting in one shard
+     * @throws IllegalArgumentException if any limit is not positive
+     */
+    public GameSessionManager(final int shardCount, final int maxGames, final int maxQueueDepth) {
+        if (shardCount < 1 || maxGames < 1 || maxQueueDepth < 1) {
+            throw new IllegalArgumentException("Shard count, game limit and queue depth must be positive");
+        }
+        this.maxGames = maxGames;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, maxQueueDepth);
+        }
+    }
+
+    /**
+     * Opens a new game. The factory runs on the game's shard thread before
+     * any action submitted for the game. Actions may be submitted as soon as
+     * this method returns; if the factory fails, the game is closed again and
+     * the actions queued for it fail with {@link IllegalStateException}.
+     *
+     * @param gameId  identifier of the game
+     * @param factory creates the state of the game
+     * @return future completed with {@code true} once the game state is created,
+     * completed at once with {@code false} if the id is already in use, the game
+     * limit is reached or the shard queue is full, or failed with the exception
+     * thrown by the factory
+     */
+    public CompletableFuture<Boolean> open(final int gameId, final Supplier<? extends G> factory) {
+        Objects.requireNonNull(factory, "factory cannot be null");
+        if (gameCount.incrementAndGet() > maxGames) {
+            gameCount.decrementAndGet();
+            return CompletableFuture.completedFuture(false);
+        }
+
+        final Shard shard = shardOf(gameId);
+        final Session<G> session = new Session<>();
+        if (sessions.putIfAbsent(gameId, session) != null) {
+            gameCount.decrementAndGet();
+            return CompletableFuture.completedFuture(false);
+        }
+        shard.games.incrementAndGet();
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        final Runnable task = () -> {
+            try {
+                session.game = factory.get();
+            } catch (Throwable e) {
+                session.failure = e;
+                end(gameId, session);
+                result.completeExceptionally(e);
+                return;
+            }
+            result.complete(true);
+        };
+        if (!shard.offer(task)) {
+            end(gameId, session);
+            result.complete(false);
+        }
+        return result;
+    }
+
+    /**
+     * Queues an action on a game. The action runs on the game's shard thread
+     * and may freely read and modify the game state.
+     *
+     * @param gameId identifier of the game
+     * @param action action to run with the game state
+     * @param <R>    type of the action's result
+     * @return future completed with the action's result; it fails with
+     * {@link IllegalArgumentException} if the game is not open,
+     * {@link RejectedExecutionException} if the shard queue is full,
+     * or with the exception thrown by the action
+     */
+    public <R> CompletableFuture<R> submit(final int gameId, final Function<? super G, ? extends R> action) {
+        Objects.requireNonNull(action, "action cannot be null");
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        final Session<G> session = sessions.get(gameId);
+        if (session == null) {
+            result.completeExceptionally(new IllegalArgumentException("Unknown game: " + gameId));
+            return result;
+        }
+
+        final Runnable task = () -> {
+            if (session.failure != null) {
+                result.completeExceptionally(new IllegalStateException("Game could not be opened: " + gameId,
+                        session.failure));
+                return;
+            }
+            if (sessions.get(gameId) != session) {
+                result.completeExceptionally(new IllegalStateException("Game was ended: " + gameId));
+                return;
+            }
+            try {
+                result.complete(action.apply(session.game));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        };
+        if (!shardOf(gameId).offer(task)) {
+            result.completeExceptionally(new RejectedExecutionException("Shard queue is full for game " + gameId));
+        }
+        return result;
+    }
+
+    /**
+     * Ends a game. Actions still queued for it fail with {@link IllegalStateException}.
+     *
+     * @param gameId identifier of the game
+     * @return {@code true} if the game was open, {@code false} otherwise
+     */
+    public boolean end(final int gameId) {
+        final Session<G> session = sessions.get(gameId);
+        return session != null && end(gameId, session);
+    }
+
+    private boolean end(final int gameId, final Session<G> session) {
+        if (!sessions.remove(gameId, session)) {
+            return false;
+        }
+        shardOf(gameId).games.decrementAndGet();
+        gameCount.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return number of games currently open
+     */
+    public int getGameCount() {
+        return gameCount.get();
+    }
+
+    /**
+     * @return load statistics of every shard, ordered by shard index
+     */
+    public List<ShardMetrics> getShardMetrics() {
+        final List<ShardMetrics> metrics = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            metrics.add(shard.metrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops the shard threads. Actions already queued still run;
+     * new games and actions are refused.
+     */
+    @Override
+    public void close() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+    }
+
+    private Shard shardOf(final int gameId) {
+        return shards[Math.floorMod(gameId, shards.length)];
+    }
+
+    /**
+     * State of one game, only accessed from its shard thread.
+     */
+    private static final class Session<G> {
+        private G game;
+        // set if the factory failed
+        private Throwable failure;
+    }
+
+    /**
+     * Single-threaded executor with a bounded queue.
+     */
+    private static final class Shard {
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final AtomicInteger games = new AtomicInteger();
+        private final AtomicInteger maxQueueDepth = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+
+        Shard(final int index, final int capacity) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacity),
+                    runnable -> {
+                        final Thread thread = new Thread(runnable, "game-shard-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        boolean offer(final Runnable task) {
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                return false;
+            }
+            final int depth = executor.getQueue().size();
+            maxQueueDepth.accumulateAndGet(depth, Math::max);
+            return true;
+        }
+
+        ShardMetrics metrics() {
+            return new ShardMetrics(index, games.get(), executor.getQueue().size(), maxQueueDepth.get(),
+                    executor.getCompletedTaskCount(), rejected.sum());
+        }
+    }
+}
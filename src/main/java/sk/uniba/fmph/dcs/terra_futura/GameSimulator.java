@@ -0,0 +1,235 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+/**
+ * Headless engine that plays complete single-player games with a {@link SimulationPolicy}.
+ * <p>
+ * Every turn the player takes a card from the pile with {@link MoveCard}, puts it
+ * on the grid and activates the cards in its row and column with {@link ProcessAction},
+ * choosing among the activations produced by {@link LegalActivationGenerator}.
+ * After the last turn the player selects an {@link ActivationPattern}, activates
+ * the cards it lists, and the final score is computed by the chosen {@link ScoringMethod}.
+ * <p>
+ * Game {@code i} of a simulation is seeded from the simulation seed and {@code i}
+ * alone, so results do not depend on the pool or on how games are split between threads.
+ */
+public final class GameSimulator {
+    /**
+     * Maximum number of legal activations offered to the policy for one card.
+     */
+    public static final int MAX_ACTIVATION_CHOICES = 16;
+
+    private static final int GAMES_PER_TASK = 64;
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+    private static final int MIN_COORD = -2;
+    private static final int MAX_COORD = 2;
+
+    private final Function<RandomGenerator, Pile> dealer;
+    private final int turns;
+    private final List<List<SimpleEntry<Integer, Integer>>> activationPatterns;
+    private final List<Function<Grid, ScoringMethod>> scoringMethods;
+
+    /**
+     * Creates a simulator.
+     *
+     * @param dealer             creates the pile of a new game from the game's random generator
+     * @param turns              number of cards each game places
+     * @param activationPatterns activation patterns the player chooses from at the end
+     * @param scoringMethods     create the scoring methods the player chooses from, for a given grid
+     * @throws IllegalArgumentException if turns is not positive or there are no scoring methods
+     */
+    public GameSimulator(
+            final Function<RandomGenerator, Pile> dealer,
+            final int turns,
+            final List<? extends Collection<SimpleEntry<Integer, Integer>>> activationPatterns,
+            final List<Function<Grid, ScoringMethod>> scoringMethods) {
+        this.dealer = Objects.requireNonNull(dealer, "dealer cannot be null");
+        if (turns < 1) {
+            throw new IllegalArgumentException("Number of turns must be positive");
+        }
+        if (scoringMethods.isEmpty()) {
+            throw new IllegalArgumentException("At least one scoring method is required");
+        }
+        this.turns = turns;
+        this.activationPatterns = new ArrayList<>();
+        for (Collection<SimpleEntry<Integer, Integer>> pattern : activationPatterns) {
+            this.activationPatterns.add(List.copyOf(pattern));
+        }
+        this.scoringMethods = List.copyOf(scoringMethods);
+    }
+
+    /**
+     * Plays games in parallel and aggregates their scores.
+     *
+     * @param games  number of games to play
+     * @param seed   seed of the simulation
+     * @param policy decisions of the player
+     * @param pool   pool to run the games on
+     * @return distribution of the final scores
+     */
+    public ScoreDistribution simulate(final int games, final long seed, final SimulationPolicy policy, final ForkJoinPool pool) {
+        Objects.requireNonNull(policy, "policy cannot be null");
+        if (games < 0) {
+            throw new IllegalArgumentException("Number of games cannot be negative");
+        }
+        return pool.invoke(new GameRange(seed, policy, 0, games));
+    }
+
+    /**
+     * Plays one game.
+     *
+     * @param seed   seed of the game, see {@link #gameSeed(long, int)}
+     * @param policy decisions of the player
+     * @return final score of the game
+     */
+    public int playGame(final long seed, final SimulationPolicy policy) {
+        final RandomGenerator random = new SplittableRandom(seed);
+        final Grid grid = new Grid();
+        final Pile pile = dealer.apply(random);
+        final ProcessAction processAction = new ProcessAction(CardTransactionExecutor.allocationFree());
+        final LegalActivationGenerator generator = new LegalActivationGenerator(grid);
+
+        for (int turn = 0; turn < turns; turn++) {
+            final List<Integer> cardIndices = new ArrayList<>(Pile.MAX_VISIBLE_CARDS);
+            for (int index = 1; index <= Pile.MAX_VISIBLE_CARDS; index++) {
+                if (pile.getCard(index).isPresent()) {
+                    cardIndices.add(index);
+                }
+            }
+            final List<GridPosition> free = new ArrayList<>(GridPosition.CELL_COUNT);
+            for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+                final GridPosition position = GridPosition.fromIndex(index);
+                if (grid.canPutCard(position)) {
+                    free.add(position);
+                }
+            }
+            if (cardIndices.isEmpty() || free.isEmpty()) {
+                break;
+            }
+
+            final int cardIndex = policy.chooseCard(cardIndices, pile, grid, random);
+            final Card card = pile.getCard(cardIndex).orElseThrow();
+            final GridPosition position = policy.choosePosition(free, card, grid, random);
+            if (!new MoveCard(cardIndex).moveCard(pile, position, grid)) {
+                throw new IllegalStateException("Policy chose an illegal move");
+            }
+
+            for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+                final GridPosition other = GridPosition.fromIndex(index);
+                if (other.getX() == position.getX() || other.getY() == position.getY()) {
+                    activate(other, grid, generator, processAction, policy, random);
+                }
+            }
+        }
+
+        if (!activationPatterns.isEmpty()) {
+            final int choice = policy.chooseActivationPattern(activationPatterns.size(), grid, random);
+            final List<SimpleEntry<Integer, Integer>> chosen = new ArrayList<>();
+            new ActivationPattern(chosen::addAll, activationPatterns.get(choice)).select();
+            for (SimpleEntry<Integer, Integer> cell : chosen) {
+                if (isOnGrid(cell.getKey()) && isOnGrid(cell.getValue())) {
+                    activate(GridPosition.of(cell.getKey(), cell.getValue()), grid, generator, processAction, policy, random);
+                }
+            }
+        }
+
+        final List<ScoringMethod> methods = new ArrayList<>(scoringMethods.size());
+        for (Function<Grid, ScoringMethod> factory : scoringMethods) {
+            methods.add(factory.apply(grid));
+        }
+        final ScoringMethod method = methods.get(policy.chooseScoringMethod(methods, grid, random));
+        method.selectThisMethodAndCalculate();
+        return method.getCalculatedTotal().map(Points::value).orElse(0);
+    }
+
+    /**
+     * Derives the seed of one game of a simulation.
+     *
+     * @param seed seed of the simulation
+     * @param game index of the game
+     * @return seed of the game
+     */
+    public static long gameSeed(final long seed, final int game) {
+        // finalizer of MurmurHash3, spreads consecutive games over the whole seed space
+        long z = seed + (game + 1L) * SEED_INCREMENT;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static void activate(
+            final GridPosition position,
+            final Grid grid,
+            final LegalActivationGenerator generator,
+            final ProcessAction processAction,
+            final SimulationPolicy policy,
+            final RandomGenerator random) {
+        final Optional<Card> card = grid.getCard(position);
+        if (card.isEmpty()) {
+            return;
+        }
+        // ProcessAction checks the upper effect only
+        final List<LegalActivation> activations = generator.activations(position)
+                .filter(activation -> !activation.lowerEffect())
+                .limit(MAX_ACTIVATION_CHOICES)
+                .toList();
+        if (activations.isEmpty()) {
+            return;
+        }
+        policy.chooseActivation(activations, grid, random).ifPresent(activation -> processAction.activateCard(
+                card.get(), grid, activation.inputs(), activation.outputs(), activation.pollution()));
+    }
+
+    private static boolean isOnGrid(final int coordinate) {
+        return coordinate >= MIN_COORD && coordinate <= MAX_COORD;
+    }
+
+    /**
+     * Plays a range of games, splitting it while it is large.
+     */
+    private final class GameRange extends RecursiveTask<ScoreDistribution> {
+        // ForkJoinTask is Serializable, but these tasks are never serialized
+        private static final long serialVersionUID = 1L;
+
+        private final long seed;
+        private final transient SimulationPolicy policy;
+        private final int from;
+        private final int to;
+
+        GameRange(final long seed, final SimulationPolicy policy, final int from, final int to) {
+            this.seed = seed;
+            this.policy = policy;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ScoreDistribution compute() {
+            if (to - from <= GAMES_PER_TASK) {
+                final ScoreDistribution distribution = new ScoreDistribution();
+                for (int game = from; game < to; game++) {
+                    distribution.add(playGame(gameSeed(seed, game), policy));
+                }
+                return distribution;
+            }
+            final int middle = (from + to) >>> 1;
+            final GameRange left = new GameRange(seed, policy, from, middle);
+            left.fork();
+            final ScoreDistribution right = new GameRange(seed, policy, middle, to).compute();
+            final ScoreDistribution result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Compact binary snapshot of a game: the player's grid, the pile and
+ * optionally the activation pattern.
+ * <p>
+ * A snapshot starts with {@link #MAGIC}, the format {@link #VERSION} and a
+ * flags byte, followed by the components written by their own
+ * {@code writeSnapshot} methods. Effects are written as trees of the built-in
+ * effect types ({@link TransformationFixed}, {@link ArbitraryBasic},
+ * {@link EffectOr}); other effects cannot be written. Cards keep their
+ * identity keys, so a restored grid has the same {@link Grid#getZobristHash()}
+ * as the one written. Together with an
+ * {@link EventJournal}, a snapshot lets a game be restored without replaying
+ * it from the first move.
+ *
+ * @param grid              the player's grid
+ * @param pile              the pile
+ * @param activationPattern the activation pattern, or {@code null}
+ */
+public record GameSnapshot(Grid grid, Pile pile, ActivationPattern activationPattern) {
+    /**
+     * First word of every snapshot ("TFS1").
+     */
+    public static final int MAGIC = 0x54465331;
+
+    /**
+     * Version of the format written by this class.
+     */
+    public static final short VERSION = 2;
+
+    private static final int HAS_PATTERN = 1;
+
+    public GameSnapshot {
+        Objects.requireNonNull(grid, "grid cannot be null");
+        Objects.requireNonNull(pile, "pile cannot be null");
+    }
+
+    /**
+     * Writes the snapshot into a buffer, starting at its position.
+     *
+     * @param out destination
+     * @throws java.nio.BufferOverflowException if the buffer is too small
+     * @throws IllegalArgumentException if a component cannot be written
+     */
+    public void writeTo(final ByteBuffer out) {
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.put((byte) (activationPattern == null ? 0 : HAS_PATTERN));
+        grid.writeSnapshot(out);
+        pile.writeSnapshot(out);
+        if (activationPattern != null) {
+            activationPattern.writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Writes the snapshot to a channel through a caller-provided buffer,
+     * which can be reused for every snapshot of a game.
+     *
+     * @param channel destination
+     * @param buffer  buffer large enough for the whole snapshot; it is cleared first
+     * @return number of bytes written
+     * @throws IOException if the channel fails
+     */
+    public int writeTo(final WritableByteChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        writeTo(buffer);
+        buffer.flip();
+        final int size = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return size;
+    }
+
+    /**
+     * Reads a snapshot from a buffer, starting at its position.
+     *
+     * @param in            source
+     * @param patternTarget grid the restored activation pattern selects into; may be {@code null}
+     * @return the snapshot
+     * @throws IllegalArgumentException if the data is not a snapshot or has an unsupported version
+     */
+    public static GameSnapshot readFrom(final ByteBuffer in, final InterfaceActivateGrid patternTarget) {
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot");
+        }
+        final short version = in.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+        final int flags = in.get();
+        final Grid grid = Grid.readSnapshot(in);
+        final Pile pile = Pile.readSnapshot(in);
+        final ActivationPattern pattern = (flags & HAS_PATTERN) == 0 ? null : ActivationPattern.readSnapshot(in, patternTarget);
+        return new GameSnapshot(grid, pile, pattern);
+    }
+
+    /**
+     * Reads a snapshot from a file channel by mapping it into memory,
+     * starting at the channel's position.
+     *
+     * @param channel       source
+     * @param patternTarget grid the restored activation pattern selects into; may be {@code null}
+     * @return the snapshot
+     * @throws IOException if the channel fails
+     * @throws IllegalArgumentException if the data is not a snapshot or has an unsupported version
+     */
+    public static GameSnapshot readFrom(final FileChannel channel, final InterfaceActivateGrid patternTarget) throws IOException {
+        final long position = channel.position();
+        return readFrom(channel.map(FileChannel.MapMode.READ_ONLY, position, channel.size() - position), patternTarget);
+    }
+}
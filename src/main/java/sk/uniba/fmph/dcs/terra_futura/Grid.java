@@ -1,48 +1,379 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
 
 /**
  * Minimal public stub of the player's grid used by blue classes.
  * Real game logic (activation rules, patterns, etc.) lives in the
  * private red implementation.
+ *
+ * Cards are stored in a flat array indexed by {@link GridPosition#getIndex()}.
+ * Registered {@link GridListener}s are notified when a card is put on the grid
+ * and whenever the resources on one of its cards change.
+ *
+ * A grid created by {@link #concurrent()} can be read by other threads while
+ * the game thread changes it. Changes made by {@link #putCard} and
+ * {@link CardTransactionExecutor} hold the write side of a {@link StampedLock},
+ * so a whole transaction is seen at once; {@link #read(Function)},
+ * {@link #getCard}, {@link #canPutCard}, {@link #canBeActivated}, {@link #state()} and
+ * {@link #getZobristHash()} first try a lock-free optimistic read and take the read
+ * lock only if a write overlapped; {@link #writeState} and {@link #writeSnapshot}
+ * take the read lock, as does {@link #fork()}. The {@link Card}s returned by {@link #getCard} are live, so
+ * their contents must be read inside {@link #read(Function)}.
+ * Resources of such a grid must not be changed through its {@link Card}s directly.
+ *
+ * A grid created by {@link #withSnapshots()} publishes an immutable
+ * {@link GridSnapshot} after every {@link #putCard} and every transaction applied
+ * by {@link CardTransactionExecutor}; other threads read it with
+ * {@link #getSnapshot()} without any locking.
  */
 public final class Grid {
-    private final Map<GridPosition, Card> cards = new HashMap<>();
+    private final Card[] cards = new Card[GridPosition.CELL_COUNT];
+    private final List<GridListener> listeners = new ArrayList<>();
+    private final long[] cellHashes = new long[GridPosition.CELL_COUNT];
+    private long zobristHash;
+    // null unless the grid was created by concurrent()
+    private final StampedLock lock;
+    private Thread writer;
+    // null unless the grid was created by withSnapshots()
+    private final AtomicReference<GridSnapshot> snapshot;
+    // cells changed since the last published snapshot
+    private int dirtyCells;
+    private long modCount;
+    private CachedState stateCache;
+
+    /**
+     * Creates an empty grid to be used by one thread at a time.
+     */
+    public Grid() {
+        this(null, null);
+    }
+
+    private Grid(final StampedLock lock, final AtomicReference<GridSnapshot> snapshot) {
+        this.lock = lock;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Creates an empty grid that other threads may read while one thread changes it.
+     *
+     * @return the grid
+     */
+    public static Grid concurrent() {
+        return new Grid(new StampedLock(), null);
+    }
+
+    /**
+     * Creates an empty grid that publishes an immutable snapshot after every change.
+     *
+     * @return the grid
+     */
+    public static Grid withSnapshots() {
+        return new Grid(null, new AtomicReference<>(GridSnapshot.EMPTY));
+    }
+
+    /**
+     * Returns the latest published snapshot. May be called from any thread;
+     * never blocks.
+     *
+     * @return the snapshot
+     * @throws IllegalStateException if the grid was not created by {@link #withSnapshots()}
+     */
+    public GridSnapshot getSnapshot() {
+        if (snapshot == null) {
+            throw new IllegalStateException("Grid does not publish snapshots");
+        }
+        return snapshot.get();
+    }
 
+    /**
+     * Publishes a snapshot with the cells changed since the previous one.
+     * Called at the end of every change made through the grid or
+     * {@link CardTransactionExecutor}; does nothing for other grids.
+     */
+    void commit() {
+        if (snapshot == null || dirtyCells == 0) {
+            return;
+        }
+        snapshot.set(snapshot.get().next(cards, dirtyCells, zobristHash));
+        dirtyCells = 0;
+    }
+
+    /**
+     * @return {@code true} if the grid was created by {@link #concurrent()}
+     */
+    public boolean isConcurrent() {
+        return lock != null;
+    }
+
+    /**
+     * Reads a consistent view of the grid. On a concurrent grid the reader
+     * first runs without locking and is run again under the read lock if a
+     * write overlapped it, so it must not change anything, may run twice, and
+     * must not rely on what it sees before it returns: values read during an
+     * overlapping write are discarded. Exceptions thrown because of such a
+     * write are discarded too.
+     *
+     * @param reader function computing the result from the grid
+     * @param <T>    type of the result
+     * @return the result computed from a state between two writes
+     */
+    public <T> T read(final Function<? super Grid, ? extends T> reader) {
+        if (lock == null || writer == Thread.currentThread()) {
+            return reader.apply(this);
+        }
+        final long optimistic = lock.tryOptimisticRead();
+        if (optimistic != 0) {
+            try {
+                final T result = reader.apply(this);
+                if (lock.validate(optimistic)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                if (lock.validate(optimistic)) {
+                    throw e;
+                }
+            }
+        }
+        final long stamp = lock.readLock();
+        try {
+            return reader.apply(this);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Acquires the write lock of a concurrent grid.
+     *
+     * @return stamp for {@link #unlockWrite(long)}, 0 if the grid is not concurrent
+     */
+    long lockWrite() {
+        if (lock == null) {
+            return 0L;
+        }
+        final long stamp = lock.writeLock();
+        writer = Thread.currentThread();
+        return stamp;
+    }
+
+    /**
+     * @param stamp value returned by {@link #lockWrite()}
+     */
+    void unlockWrite(final long stamp) {
+        if (lock != null) {
+            writer = null;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Takes the read lock of a concurrent grid for a read that cannot be
+     * retried, such as one writing to a destination.
+     *
+     * @return stamp for {@link #unlockRead(long)}, 0 if no lock was taken
+     */
+    private long lockRead() {
+        if (lock == null || writer == Thread.currentThread()) {
+            return 0L;
+        }
+        return lock.readLock();
+    }
+
+    /**
+     * @param stamp value returned by {@link #lockRead()}
+     */
+    private void unlockRead(final long stamp) {
+        if (stamp != 0L) {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Returns the card in a cell. The card itself is not a copy: on a concurrent
+     * grid, other threads must read its contents inside {@link #read(Function)},
+     * or use {@link #getSnapshot()} or {@link #state()} instead. Within such a read
+     * use accessors like {@link Card#getResourceCount} or {@link Card#writeState},
+     * not {@link Card#state()}, which would cache what an overlapped optimistic
+     * read has seen.
+     *
+     * @param coordinate cell of the card
+     * @return the card, or empty if the cell is empty or the coordinate is {@code null}
+     */
     public Optional<Card> getCard(final GridPosition coordinate) {
         if (coordinate == null) {
             return Optional.empty();
         }
-        return Optional.ofNullable(cards.get(coordinate));
+        final int index = coordinate.getIndex();
+        if (lock == null) {
+            return Optional.ofNullable(cards[index]);
+        }
+        return read(grid -> Optional.ofNullable(grid.cards[index]));
+    }
+
+    /**
+     * @param index cell index, see {@link GridPosition#getIndex()}
+     * @return card at the given cell, or {@code null} if the cell is empty
+     */
+    Card getCardAt(final int index) {
+        return cards[index];
     }
 
     public boolean canPutCard(final GridPosition coordinate) {
         if (coordinate == null) {
             return false;
         }
-        return !cards.containsKey(coordinate);
+        final int index = coordinate.getIndex();
+        if (lock == null) {
+            return cards[index] == null;
+        }
+        return read(grid -> grid.cards[index] == null);
     }
 
+    /**
+     * Puts a card onto an empty cell. A card can lie on one grid only, because the
+     * grid keeps its hash, state and snapshots up to date through the card's change
+     * listener; put a {@link Card#copy()} onto another grid instead.
+     *
+     * @param coordinate cell for the card
+     * @param card       card to put
+     * @throws IllegalStateException if the cell is occupied or the card already lies on a grid
+     */
     public void putCard(final GridPosition coordinate, final Card card) {
         Objects.requireNonNull(coordinate, "coordinate cannot be null");
         Objects.requireNonNull(card, "card cannot be null");
 
-        if (!canPutCard(coordinate)) {
-            throw new IllegalStateException("Position already occupied: " + coordinate);
+        final long stamp = lockWrite();
+        try {
+            if (!canPutCard(coordinate)) {
+                throw new IllegalStateException("Position already occupied: " + coordinate);
+            }
+            if (card.hasChangeListener()) {
+                throw new IllegalStateException("Card already lies on a grid");
+            }
+            attach(coordinate, card);
+            fireCardChanged(coordinate, card);
+            commit();
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    private void attach(final GridPosition coordinate, final Card card) {
+        final int index = coordinate.getIndex();
+        cards[index] = card;
+        rehashCell(index, card);
+        card.setChangeListener(() -> {
+            rehashCell(index, card);
+            fireCardChanged(coordinate, card);
+        });
+    }
+
+    private void rehashCell(final int index, final Card card) {
+        dirtyCells |= 1 << index;
+        modCount++;
+        final long cellHash = Zobrist.cellKey(index, card.getZobristHash());
+        zobristHash ^= cellHashes[index] ^ cellHash;
+        cellHashes[index] = cellHash;
+    }
+
+    /**
+     * Returns the Zobrist hash of the position: which card lies in which cell
+     * and what resources it holds. It is updated in O(1) whenever a card is put
+     * on the grid or its resources change, and is equal for a grid and its
+     * {@link #fork()} until one of them changes.
+     *
+     * @return the hash, 0 for an empty grid
+     */
+    public long getZobristHash() {
+        if (lock == null) {
+            return zobristHash;
+        }
+        return read(grid -> grid.zobristHash);
+    }
+
+    /**
+     * @return number of card placements and resource changes on the grid so far
+     */
+    public long getModCount() {
+        if (lock == null) {
+            return modCount;
+        }
+        return read(grid -> grid.modCount);
+    }
+
+    /**
+     * Creates an independent branch of the grid in O(1), for search and what-if analysis.
+     * Cards are copied with {@link Card#copy()}, so their resource counts stay
+     * shared until one side changes them; only the cards a branch touches are
+     * really copied. Listeners are not carried over to the branch, and the
+     * branch of a concurrent grid is not concurrent, nor does a branch publish snapshots.
+     * A concurrent grid is forked under its read lock: copying a card marks its counts
+     * as shared, and the lock makes that mark visible to the next write.
+     *
+     * @return the branch
+     */
+    public Grid fork() {
+        final long stamp = lockRead();
+        try {
+            return forkCells();
+        } finally {
+            unlockRead(stamp);
+        }
+    }
+
+    private Grid forkCells() {
+        final Grid branch = new Grid();
+        for (int i = 0; i < cards.length; i++) {
+            if (cards[i] != null) {
+                branch.attach(GridPosition.fromIndex(i), cards[i].copy());
+            }
+        }
+        return branch;
+    }
+
+    /**
+     * Registers a listener notified about card placements and resource changes.
+     *
+     * @param listener the listener to register; must not be {@code null}
+     */
+    public void addListener(final GridListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener cannot be null"));
+    }
+
+    /**
+     * Unregisters a previously registered listener.
+     * If the listener is not registered, the method has no effect.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(final GridListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireCardChanged(final GridPosition position, final Card card) {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).cardChanged(position, card);
         }
-        cards.put(coordinate, card);
     }
 
     public boolean canBeActivated(final GridPosition coordinate) {
-        return coordinate != null && cards.containsKey(coordinate);
+        if (coordinate == null) {
+            return false;
+        }
+        final int index = coordinate.getIndex();
+        if (lock == null) {
+            return cards[index] != null;
+        }
+        return read(grid -> grid.cards[index] != null);
     }
 
     public void setActivated(final GridPosition coordinate) {
@@ -57,21 +388,176 @@ public final class Grid {
         // no-op in stub
     }
 
+    /**
+     * Returns the state of the grid as JSON. It is built only once per
+     * {@link #getModCount() modification count}, from the cached states of the cards,
+     * so after a change only the changed cards are serialized again.
+     *
+     * @return the state of the grid as a JSON string
+     */
     public String state() {
-        final JSONArray cardsArray = new JSONArray();
-        for (Map.Entry<GridPosition, Card> entry : cards.entrySet()) {
-            GridPosition pos = entry.getKey();
-            Card card = entry.getValue();
+        if (lock == null) {
+            return storeState(buildState());
+        }
+        // an optimistic read may overlap a write, so nothing is cached
+        // until read() has validated the build or redone it under the read lock
+        return storeState(read(Grid::buildState));
+    }
+
+    private GridState buildState() {
+        final long version = modCount;
+        final CachedState cache = stateCache;
+        if (CachedState.isValid(cache, version)) {
+            return new GridState(cache, null);
+        }
+        final CachedState[] cells = new CachedState[cards.length];
+        final String json = JsonWriter.toString(out -> writeCells(out, cards, cells));
+        return new GridState(new CachedState(version, json), cells);
+    }
 
-            JSONObject obj = new JSONObject();
-            obj.put("x", pos.getX());
-            obj.put("y", pos.getY());
-            obj.put("card", card.state());
-            cardsArray.put(obj);
+    private String storeState(final GridState state) {
+        if (state.cells() != null) {
+            for (int i = 0; i < cards.length; i++) {
+                // an occupied cell keeps its card, so cells[i] belongs to cards[i]
+                if (state.cells()[i] != null) {
+                    cards[i].storeState(state.cells()[i]);
+                }
+            }
+            stateCache = state.grid();
         }
+        return state.grid().json();
+    }
+
+    /**
+     * State of the grid built by a read, with the states of its cards, to be cached afterwards.
+     *
+     * @param grid  state of the grid
+     * @param cells states of the cards indexed by cell, {@code null} if the grid state was cached
+     */
+    private record GridState(CachedState grid, CachedState[] cells) {
+    }
+
+    /**
+     * Writes the state of the grid as JSON, see {@link #state()}; cards are written as nested objects.
+     * A current cached state is appended as is, otherwise the cells are streamed to the
+     * destination without building or caching a string. A concurrent grid is written
+     * under its read lock, because the destination cannot take back what an overlapped
+     * optimistic read would have written.
+     *
+     * @param out destination
+     * @throws IOException if the destination fails
+     */
+    public void writeState(final Appendable out) throws IOException {
+        final long stamp = lockRead();
+        try {
+            writeStateUnlocked(out);
+        } finally {
+            unlockRead(stamp);
+        }
+    }
 
-        JSONObject result = new JSONObject();
-        result.put("cards", cardsArray);
-        return result.toString();
+    private void writeStateUnlocked(final Appendable out) throws IOException {
+        final CachedState cache = stateCache;
+        if (CachedState.isValid(cache, modCount)) {
+            out.append(cache.json());
+            return;
+        }
+        writeCells(out, cards, null);
+    }
+
+
+    /**
+     * Writes cards indexed by cell as the JSON state of a grid.
+     *
+     * @param out   destination
+     * @param cards cards indexed by {@link GridPosition#getIndex()}, {@code null} for empty cells
+     * @param cells receives the {@link Card#cachedState()} written for each card,
+     *              or {@code null} to let each card write its own state
+     * @throws IOException if the destination fails
+     */
+    static void writeCells(final Appendable out, final Card[] cards, final CachedState[] cells)
+            throws IOException {
+        out.append('{');
+        JsonWriter.key(out, "cards");
+        out.append('[');
+        boolean first = true;
+        for (int i = 0; i < cards.length; i++) {
+            final Card card = cards[i];
+            if (card == null) {
+                continue;
+            }
+            final GridPosition pos = GridPosition.fromIndex(i);
+
+            if (!first) {
+                out.append(',');
+            }
+            out.append('{');
+            JsonWriter.key(out, "x");
+            JsonWriter.number(out, pos.getX());
+            out.append(',');
+            JsonWriter.key(out, "y");
+            JsonWriter.number(out, pos.getY());
+            out.append(',');
+            JsonWriter.key(out, "card");
+            if (cells == null) {
+                card.writeState(out);
+            } else {
+                cells[i] = card.cachedState();
+                out.append(cells[i].json());
+            }
+            out.append('}');
+            first = false;
+        }
+        out.append("]}");
+    }
+
+    /**
+     * Writes the grid in the binary snapshot format: a bit mask of occupied
+     * cells followed by their cards in cell index order. A concurrent grid is
+     * written under its read lock, like {@link #writeState}.
+     *
+     * @param out destination
+     * @throws IllegalArgumentException if a card cannot be written, see {@link GameSnapshot}
+     */
+    public void writeSnapshot(final ByteBuffer out) {
+        final long stamp = lockRead();
+        try {
+            writeCards(out);
+        } finally {
+            unlockRead(stamp);
+        }
+    }
+
+    private void writeCards(final ByteBuffer out) {
+        int occupied = 0;
+        for (int i = 0; i < cards.length; i++) {
+            if (cards[i] != null) {
+                occupied |= 1 << i;
+            }
+        }
+        out.putInt(occupied);
+        for (int mask = occupied; mask != 0; mask &= mask - 1) {
+            cards[Integer.numberOfTrailingZeros(mask)].writeSnapshot(out);
+        }
+    }
+
+    /**
+     * Reads a grid written by {@link #writeSnapshot(ByteBuffer)}.
+     *
+     * @param in source
+     * @return the grid
+     * @throws IllegalArgumentException if the data is not a valid grid
+     */
+    public static Grid readSnapshot(final ByteBuffer in) {
+        final int occupied = in.getInt();
+        if (occupied >>> GridPosition.CELL_COUNT != 0) {
+            throw new IllegalArgumentException("Invalid cell mask: " + Integer.toHexString(occupied));
+        }
+        final Grid grid = new Grid();
+        for (int mask = occupied; mask != 0; mask &= mask - 1) {
+            final int index = Integer.numberOfTrailingZeros(mask);
+            grid.putCard(GridPosition.fromIndex(index), Card.readSnapshot(in));
+        }
+        return grid;
     }
 }
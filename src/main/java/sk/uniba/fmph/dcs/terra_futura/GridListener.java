@@ -0,0 +1,16 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+/**
+ * Listener notified about changes of a {@link Grid}.
+ */
+public interface GridListener {
+
+    /**
+     * Called after a card was put on the grid and after every change
+     * of the resources stored on a card of the grid.
+     *
+     * @param position position of the changed card
+     * @param card     the changed card
+     */
+    void cardChanged(GridPosition position, Card card);
+}
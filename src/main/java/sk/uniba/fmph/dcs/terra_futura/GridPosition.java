@@ -1,19 +1,42 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
-import java.util.Objects;
-
 /**
  * Coordinates of a card in the grid.
  *
  * Coordinates are in the range [-2, 2] for both axes.
  * The (0, 0) position denotes the starting card.
+ *
+ * All 25 valid positions are preallocated; use {@link #of(int, int)} or
+ * {@link #fromIndex(int)} to obtain them without allocation.
  */
 public final class GridPosition {
+    /**
+     * Number of positions along one axis.
+     */
+    public static final int SIZE = 5;
+
+    /**
+     * Number of positions in the whole grid.
+     */
+    public static final int CELL_COUNT = SIZE * SIZE;
+
+    private static final int MIN_COORD = -2;
+    private static final int MAX_COORD = 2;
+
+    private static final GridPosition[] POSITIONS = new GridPosition[CELL_COUNT];
+
+    static {
+        for (int x = MIN_COORD; x <= MAX_COORD; x++) {
+            for (int y = MIN_COORD; y <= MAX_COORD; y++) {
+                final GridPosition position = new GridPosition(x, y);
+                POSITIONS[position.index] = position;
+            }
+        }
+    }
+
     private final int x;
     private final int y;
-
-    private final int leftConstraint = -2;
-    private final int rightConstraint = 2;
+    private final int index;
 
     /**
      * Creates a new grid position.
@@ -23,12 +46,46 @@ public final class GridPosition {
      * @throws IllegalArgumentException if either coordinate is out of range.
      */
     public GridPosition(final int x, final int y) {
-        if (x < leftConstraint || x > rightConstraint || y < leftConstraint || y > rightConstraint) {
+        if (!isValid(x, y)) {
             throw new IllegalArgumentException("GridPosition must be in range [-2, 2] for both x and y coordinates.");
         }
 
         this.x = x;
         this.y = y;
+        this.index = (x - MIN_COORD) * SIZE + (y - MIN_COORD);
+    }
+
+    /**
+     * Returns the shared instance for the given coordinates.
+     *
+     * @param x x-coordinate of the position.
+     * @param y y-coordinate of the position.
+     * @return the cached position
+     * @throws IllegalArgumentException if either coordinate is out of range.
+     */
+    public static GridPosition of(final int x, final int y) {
+        if (!isValid(x, y)) {
+            throw new IllegalArgumentException("GridPosition must be in range [-2, 2] for both x and y coordinates.");
+        }
+        return POSITIONS[(x - MIN_COORD) * SIZE + (y - MIN_COORD)];
+    }
+
+    /**
+     * Returns the shared instance for the given cell index.
+     *
+     * @param index cell index in the range [0, {@link #CELL_COUNT})
+     * @return the cached position
+     * @throws IllegalArgumentException if the index is out of range.
+     */
+    public static GridPosition fromIndex(final int index) {
+        if (index < 0 || index >= CELL_COUNT) {
+            throw new IllegalArgumentException("Invalid cell index: " + index);
+        }
+        return POSITIONS[index];
+    }
+
+    private static boolean isValid(final int x, final int y) {
+        return x >= MIN_COORD && x <= MAX_COORD && y >= MIN_COORD && y <= MAX_COORD;
     }
 
     public int getX() {
@@ -39,6 +96,13 @@ public final class GridPosition {
         return y;
     }
 
+    /**
+     * @return cell index of this position, {@code (x + 2) * 5 + (y + 2)}
+     */
+    public int getIndex() {
+        return index;
+    }
+
     @Override
     public String toString() {
         return "(" + x + "," + y + ")";
@@ -54,11 +118,11 @@ public final class GridPosition {
         }
 
         GridPosition other = (GridPosition) o;
-        return x == other.x && y == other.y;
+        return index == other.index;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return index;
     }
 }
@@ -0,0 +1,118 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable view of a {@link Grid} at one version, published by grids created
+ * with {@link Grid#withSnapshots()}.
+ * <p>
+ * Every cell holds a private {@link Card#copy()} of the grid's card, which
+ * shares the resource counts until the live card changes. A new version copies
+ * only the cells changed since the previous one and shares all others with it,
+ * so publishing costs O(changed cells). Snapshots can be read from any thread
+ * without locking; {@link #state()} is computed once per version.
+ */
+public final class GridSnapshot {
+    static final GridSnapshot EMPTY = new GridSnapshot(0, new Card[GridPosition.CELL_COUNT], 0);
+
+    private final long version;
+    // private copies that are never changed; shared between versions
+    private final Card[] cards;
+    private final long zobristHash;
+    private volatile String state;
+
+    private GridSnapshot(final long version, final Card[] cards, final long zobristHash) {
+        this.version = version;
+        this.cards = cards;
+        this.zobristHash = zobristHash;
+    }
+
+    /**
+     * Creates the next version from the live cards of a grid.
+     *
+     * @param live        cards of the grid indexed by cell
+     * @param dirtyCells  mask of the cells changed since this version
+     * @param zobristHash hash of the grid, see {@link Grid#getZobristHash()}
+     * @return the next version
+     */
+    GridSnapshot next(final Card[] live, final int dirtyCells, final long zobristHash) {
+        final Card[] next = cards.clone();
+        for (int mask = dirtyCells; mask != 0; mask &= mask - 1) {
+            final int cell = Integer.numberOfTrailingZeros(mask);
+            next[cell] = live[cell] == null ? null : live[cell].copy();
+        }
+        return new GridSnapshot(version + 1, next, zobristHash);
+    }
+
+    /**
+     * @return number of changes published before this snapshot, 0 for an empty grid
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the Zobrist hash of the grid at this version
+     */
+    public long getZobristHash() {
+        return zobristHash;
+    }
+
+    /**
+     * @param position cell of the grid
+     * @return {@code true} if the cell holds a card
+     */
+    public boolean hasCard(final GridPosition position) {
+        return cell(position) != null;
+    }
+
+    /**
+     * @param position cell of the grid
+     * @param resource resource type to count
+     * @return number of resources of the given type on the card, 0 for an empty cell
+     */
+    public int getResourceCount(final GridPosition position, final Resource resource) {
+        Objects.requireNonNull(resource, "resource cannot be null");
+        final Card card = cell(position);
+        return card == null ? 0 : card.getResourceCount(resource);
+    }
+
+    /**
+     * @param position cell of the grid
+     * @return resources on the card grouped by type, empty for an empty cell
+     */
+    public List<Resource> getResources(final GridPosition position) {
+        final Card card = cell(position);
+        return card == null ? List.of() : List.copyOf(card.getResources());
+    }
+
+    /**
+     * @param position cell of the grid
+     * @return {@code true} if the cell holds an active card
+     */
+    public boolean isActive(final GridPosition position) {
+        final Card card = cell(position);
+        return card != null && card.isActive();
+    }
+
+    /**
+     * Returns the state in the same format as {@link Grid#state()}.
+     * It is computed on the first call and reused afterwards.
+     *
+     * @return the state
+     */
+    public String state() {
+        String result = state;
+        if (result == null) {
+            result = JsonWriter.toString(out -> Grid.writeCells(out, cards, null));
+            state = result;
+        }
+        return result;
+    }
+
+    private Card cell(final GridPosition position) {
+        Objects.requireNonNull(position, "position cannot be null");
+        return cards[position.getIndex()];
+    }
+}
@@ -0,0 +1,224 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Rebuilds game state from an {@link EventJournal}.
+ * <p>
+ * Events are applied in the order they were written. The grid and pile must be
+ * in the state they had when the journal was started: card moves are replayed
+ * by pile index, so the pile has to contain the same cards in the same order.
+ * Activations are applied without checking card effects, because only
+ * activations that passed the checks were recorded; resources are moved like
+ * in {@link CardTransactionExecutor}, removals first. The activations of a batch
+ * are collected until its commit record and then applied one after another.
+ */
+public final class JournalReplay {
+    private static final int POLLUTION = Resource.POLLUTION.ordinal();
+
+    private final Grid grid;
+    private final Pile pile;
+    private final InterfaceActivateGrid patternTarget;
+    private final int[][] removals = new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+    private final int[][] additions = new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+    private final List<SimpleEntry<Integer, Integer>> pattern = new ArrayList<>();
+    private final List<Step> batch = new ArrayList<>();
+    private int removalMask;
+    private int additionMask;
+
+    private JournalReplay(final Grid grid, final Pile pile, final InterfaceActivateGrid patternTarget) {
+        this.grid = Objects.requireNonNull(grid, "grid cannot be null");
+        this.pile = Objects.requireNonNull(pile, "pile cannot be null");
+        this.patternTarget = patternTarget;
+    }
+
+    /**
+     * Replays a journal onto a grid and a pile.
+     *
+     * @param directory     directory holding the journal segments
+     * @param grid          grid to rebuild
+     * @param pile          pile the cards were taken from
+     * @param patternTarget receives selected activation patterns; may be {@code null}
+     * @return number of events applied
+     * @throws IOException if a segment cannot be read
+     * @throws IllegalStateException if an event cannot be applied to the given grid and pile
+     */
+    public static long replay(
+            final Path directory,
+            final Grid grid,
+            final Pile pile,
+            final InterfaceActivateGrid patternTarget) throws IOException {
+        final JournalReplay replay = new JournalReplay(grid, pile, patternTarget);
+        long events = 0;
+        for (Path path : EventJournal.segments(directory)) {
+            events += replay.replaySegment(path);
+        }
+        return events;
+    }
+
+    private long replaySegment(final Path path) throws IOException {
+        final IntBuffer records;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asIntBuffer();
+        }
+        if (!records.hasRemaining() || records.get(0) != EventJournal.MAGIC) {
+            throw new IllegalStateException("Not a journal segment: " + path);
+        }
+
+        long events = 0;
+        try {
+            for (int i = 1; i < records.limit(); i++) {
+                final int record = records.get(i);
+                final int first = EventJournal.first(record);
+                final int second = EventJournal.second(record);
+                switch (EventJournal.kind(record)) {
+                    case EventJournal.END:
+                        return events;
+                    case EventJournal.INPUT:
+                        removals[second][first]++;
+                        removalMask |= 1 << second;
+                        break;
+                    case EventJournal.OUTPUT:
+                        additions[second][first]++;
+                        additionMask |= 1 << second;
+                        break;
+                    case EventJournal.POLLUTION:
+                        additions[second][POLLUTION]++;
+                        additionMask |= 1 << second;
+                        break;
+                    case EventJournal.ACTIVATION:
+                        applyActivation();
+                        events++;
+                        break;
+                    case EventJournal.BATCH_STEP:
+                        batch.add(takeStep());
+                        break;
+                    case EventJournal.BATCH:
+                        batch.add(takeStep());
+                        applyBatch();
+                        events++;
+                        break;
+                    case EventJournal.MOVE_CARD:
+                        moveCard(first, GridPosition.fromIndex(second));
+                        events++;
+                        break;
+                    case EventJournal.PATTERN_CELL:
+                        pattern.add(new SimpleEntry<>((int) (byte) first, (int) (byte) second));
+                        break;
+                    case EventJournal.PATTERN:
+                        if (patternTarget != null) {
+                            patternTarget.setActivationPattern(new ArrayList<>(pattern));
+                        }
+                        pattern.clear();
+                        events++;
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown record " + Integer.toHexString(record) + " in " + path);
+                }
+            }
+            return events;
+        } finally {
+            // records of an event that was never committed are dropped
+            discardPending();
+        }
+    }
+
+    private void moveCard(final int pileIndex, final GridPosition position) {
+        final Card card = pile.getCard(pileIndex).orElseThrow(
+                () -> new IllegalStateException("Pile has no card at index " + pileIndex));
+        if (!grid.canPutCard(position)) {
+            throw new IllegalStateException("Position already occupied: " + position);
+        }
+        pile.takeCard(pileIndex);
+        grid.putCard(position, card);
+    }
+
+    private void applyActivation() {
+        try {
+            apply(removals, additions, removalMask, additionMask);
+        } finally {
+            discardPending();
+        }
+    }
+
+    private void applyBatch() {
+        try {
+            for (Step step : batch) {
+                apply(step.removals(), step.additions(), step.removalMask(), step.additionMask());
+            }
+        } finally {
+            discardPending();
+        }
+    }
+
+    private void apply(final int[][] toRemove, final int[][] toAdd, final int toRemoveMask, final int toAddMask) {
+        try {
+            for (int mask = toRemoveMask | toAddMask; mask != 0; mask &= mask - 1) {
+                final int cell = Integer.numberOfTrailingZeros(mask);
+                if (grid.getCardAt(cell) == null) {
+                    throw new IllegalStateException("No card at " + GridPosition.fromIndex(cell));
+                }
+            }
+            for (int mask = toRemoveMask; mask != 0; mask &= mask - 1) {
+                final int cell = Integer.numberOfTrailingZeros(mask);
+                grid.getCardAt(cell).getResources(toRemove[cell]);
+            }
+            for (int mask = toAddMask; mask != 0; mask &= mask - 1) {
+                final int cell = Integer.numberOfTrailingZeros(mask);
+                grid.getCardAt(cell).putResources(toAdd[cell]);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Journal does not match the grid", e);
+        }
+    }
+
+    /**
+     * Moves the collected transfers of one activation of a batch into a step.
+     */
+    private Step takeStep() {
+        final int[][] stepRemovals = new int[GridPosition.CELL_COUNT][];
+        final int[][] stepAdditions = new int[GridPosition.CELL_COUNT][];
+        for (int mask = removalMask; mask != 0; mask &= mask - 1) {
+            final int cell = Integer.numberOfTrailingZeros(mask);
+            stepRemovals[cell] = removals[cell].clone();
+        }
+        for (int mask = additionMask; mask != 0; mask &= mask - 1) {
+            final int cell = Integer.numberOfTrailingZeros(mask);
+            stepAdditions[cell] = additions[cell].clone();
+        }
+        final Step step = new Step(stepRemovals, stepAdditions, removalMask, additionMask);
+        clearTransfers();
+        return step;
+    }
+
+    private void discardPending() {
+        clearTransfers();
+        pattern.clear();
+        batch.clear();
+    }
+
+    private void clearTransfers() {
+        for (int mask = removalMask; mask != 0; mask &= mask - 1) {
+            Arrays.fill(removals[Integer.numberOfTrailingZeros(mask)], 0);
+        }
+        for (int mask = additionMask; mask != 0; mask &= mask - 1) {
+            Arrays.fill(additions[Integer.numberOfTrailingZeros(mask)], 0);
+        }
+        removalMask = 0;
+        additionMask = 0;
+    }
+
+    /**
+     * Transfers of one activation of a batch; rows of cells outside the masks are {@code null}.
+     */
+    private record Step(int[][] removals, int[][] additions, int removalMask, int additionMask) { }
+}
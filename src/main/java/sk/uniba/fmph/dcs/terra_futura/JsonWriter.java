@@ -0,0 +1,109 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Helpers for writing JSON directly to an {@link Appendable},
+ * used by the {@code writeState} methods.
+ */
+final class JsonWriter {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int FIRST_PRINTABLE = 0x20;
+
+    private JsonWriter() {
+    }
+
+    /**
+     * Writes a quoted and escaped JSON string.
+     *
+     * @param out   destination
+     * @param value string to write
+     * @throws IOException if the destination fails
+     */
+    static void string(final Appendable out, final String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> {
+                    if (c < FIRST_PRINTABLE) {
+                        out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Writes an object key including the colon.
+     *
+     * @param out destination
+     * @param key key to write; must not need escaping
+     * @throws IOException if the destination fails
+     */
+    static void key(final Appendable out, final String key) throws IOException {
+        out.append('"').append(key).append("\":");
+    }
+
+    /**
+     * Writes an integer.
+     *
+     * @param out   destination
+     * @param value value to write
+     * @throws IOException if the destination fails
+     */
+    static void number(final Appendable out, final int value) throws IOException {
+        if (out instanceof StringBuilder builder) {
+            builder.append(value);
+        } else {
+            out.append(Integer.toString(value));
+        }
+    }
+
+    /**
+     * Writes a boolean.
+     *
+     * @param out   destination
+     * @param value value to write
+     * @throws IOException if the destination fails
+     */
+    static void bool(final Appendable out, final boolean value) throws IOException {
+        out.append(value ? "true" : "false");
+    }
+
+    /**
+     * Runs a state writer against a new {@link StringBuilder}.
+     *
+     * @param writer writer to run
+     * @return the written JSON
+     */
+    static String toString(final StateWriter writer) {
+        final StringBuilder builder = new StringBuilder();
+        try {
+            writer.writeState(builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Something that can write its state as JSON.
+     */
+    @FunctionalInterface
+    interface StateWriter {
+        void writeState(Appendable out) throws IOException;
+    }
+}
@@ -0,0 +1,32 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.List;
+
+/**
+ * One legal way to activate a card, in the shape expected by
+ * {@link ProcessAction#activateCard} and {@link CardTransactionExecutor#execute}.
+ *
+ * @param position    position of the activated card
+ * @param lowerEffect {@code true} if only the lower effect of the card allows the activation
+ * @param inputs      resources to be paid (resource, position)
+ * @param outputs     resources to be gained (resource, position)
+ * @param pollution   positions that receive pollution
+ */
+public record LegalActivation(
+        GridPosition position,
+        boolean lowerEffect,
+        List<Pair<Resource, GridPosition>> inputs,
+        List<Pair<Resource, GridPosition>> outputs,
+        List<GridPosition> pollution) {
+
+    /**
+     * Creates an activation; the lists are copied.
+     */
+    public LegalActivation {
+        inputs = List.copyOf(inputs);
+        outputs = List.copyOf(outputs);
+        pollution = List.copyOf(pollution);
+    }
+}
@@ -0,0 +1,214 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Enumerates the legal activations of a card on a grid.
+ *
+ * Candidates are built from the compiled upper and lower effect of the card:
+ * the outputs are placed on the activated card, the inputs are paid from any
+ * active card holding them and the pollution goes to any active card, which
+ * are the rules {@link CardTransactionExecutor} validates. Generation has no
+ * side effects, works on a copy of the resource counts taken when
+ * {@link #activations(GridPosition)} is called, and produces each distinct
+ * activation exactly once. Activations are distinct if they move different
+ * resources; one allowed by both effects of the card is listed as an upper one.
+ *
+ * Opaque effect parts (see {@link CompiledEffect#isExact()}) cannot be enumerated
+ * and are skipped.
+ */
+public final class LegalActivationGenerator {
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int POLLUTION = Resource.POLLUTION.ordinal();
+
+    private final Grid grid;
+
+    /**
+     * Creates a generator for the given grid.
+     *
+     * @param grid player's grid
+     */
+    public LegalActivationGenerator(final Grid grid) {
+        this.grid = Objects.requireNonNull(grid, "grid cannot be null");
+    }
+
+    /**
+     * Lazily streams every distinct legal activation of the card at the given position.
+     *
+     * @param position position of the card to activate
+     * @return stream of legal activations; empty if there is no active card at the position
+     */
+    public Stream<LegalActivation> activations(final GridPosition position) {
+        if (position == null) {
+            return Stream.empty();
+        }
+        final Card card = grid.getCardAt(position.getIndex());
+        if (card == null || !card.isActive()) {
+            return Stream.empty();
+        }
+
+        // snapshot of the active cards and their resources
+        final List<GridPosition> cells = new ArrayList<>();
+        final List<int[]> counts = new ArrayList<>();
+        final int[] available = new int[Card.RESOURCE_COUNT];
+        for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+            final Card other = grid.getCardAt(index);
+            if (other == null || !other.isActive()) {
+                continue;
+            }
+            final int[] cellCounts = new int[Card.RESOURCE_COUNT];
+            for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                cellCounts[r] = other.getResourceCount(RESOURCES[r]);
+                available[r] += cellCounts[r];
+            }
+            cells.add(GridPosition.fromIndex(index));
+            counts.add(cellCounts);
+        }
+        final Snapshot snapshot = new Snapshot(position, cells, counts, available);
+
+        // the upper effect is enumerated first, so an activation allowed by both
+        // effects is listed once as an upper one, which ProcessAction accepts
+        final Set<List<?>> seen = new HashSet<>();
+        return Stream.concat(
+                effectActivations(snapshot, card.getCompiledUpperEffect(), false),
+                effectActivations(snapshot, card.getCompiledLowerEffect(), true))
+                .filter(activation -> seen.add(List.of(activation.inputs(), activation.outputs(), activation.pollution())));
+    }
+
+    private static Stream<LegalActivation> effectActivations(final Snapshot snapshot, final CompiledEffect effect, final boolean lower) {
+        if (effect == null) {
+            return Stream.empty();
+        }
+        return IntStream.range(0, effect.alternativeCount()).boxed()
+                .flatMap(alternative -> alternativeActivations(snapshot, effect, alternative, lower));
+    }
+
+    private static Stream<LegalActivation> alternativeActivations(
+            final Snapshot snapshot, final CompiledEffect effect, final int alternative, final boolean lower) {
+        final List<Pair<Resource, GridPosition>> outputs = new ArrayList<>();
+        final long outputSignature = effect.outputSignature(alternative);
+        for (Resource resource : RESOURCES) {
+            for (int i = 0; i < CompiledEffect.count(outputSignature, resource); i++) {
+                outputs.add(Pair.of(resource, snapshot.position));
+            }
+        }
+
+        final Stream<int[]> inputMultisets;
+        if (effect.isArbitrary(alternative)) {
+            // any resources except pollution, bounded by what is on the grid
+            final int[] bounds = snapshot.available.clone();
+            bounds[POLLUTION] = 0;
+            inputMultisets = compositions(effect.inputSize(alternative), bounds);
+        } else {
+            final int[] required = new int[Card.RESOURCE_COUNT];
+            for (Resource resource : RESOURCES) {
+                required[resource.ordinal()] = CompiledEffect.count(effect.inputSignature(alternative), resource);
+            }
+            inputMultisets = Stream.of(required);
+        }
+
+        final int pollution = effect.pollution(alternative);
+        final int[] pollutionBounds = new int[snapshot.cells.size()];
+        Arrays.fill(pollutionBounds, pollution);
+
+        return inputMultisets
+                .flatMap(required -> payments(snapshot, required, 0, new int[Card.RESOURCE_COUNT][]))
+                .flatMap(payment -> compositions(pollution, pollutionBounds)
+                        .map(placement -> toActivation(snapshot, lower, payment, outputs, placement)));
+    }
+
+    /**
+     * Distributes the required resources over the cells holding them,
+     * one resource type at a time.
+     *
+     * @return streams of payments; {@code payment[r][j]} is the number of resources
+     * of type {@code r} taken from the {@code j}-th active cell, or {@code null} if none
+     */
+    private static Stream<int[][]> payments(final Snapshot snapshot, final int[] required, final int resource, final int[][] payment) {
+        if (resource == Card.RESOURCE_COUNT) {
+            return Stream.<int[][]>of(payment);
+        }
+        if (required[resource] == 0) {
+            return payments(snapshot, required, resource + 1, payment);
+        }
+
+        final int[] bounds = new int[snapshot.cells.size()];
+        for (int j = 0; j < bounds.length; j++) {
+            bounds[j] = snapshot.counts.get(j)[resource];
+        }
+        return compositions(required[resource], bounds).flatMap(split -> {
+            final int[][] next = payment.clone();
+            next[resource] = split;
+            return payments(snapshot, required, resource + 1, next);
+        });
+    }
+
+    private static LegalActivation toActivation(
+            final Snapshot snapshot,
+            final boolean lower,
+            final int[][] payment,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final int[] pollutionPlacement) {
+        // canonical order: by cell, then by resource
+        final List<Pair<Resource, GridPosition>> inputs = new ArrayList<>();
+        final List<GridPosition> pollution = new ArrayList<>();
+        for (int j = 0; j < snapshot.cells.size(); j++) {
+            final GridPosition cell = snapshot.cells.get(j);
+            for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                final int taken = payment[r] == null ? 0 : payment[r][j];
+                for (int i = 0; i < taken; i++) {
+                    inputs.add(Pair.of(RESOURCES[r], cell));
+                }
+            }
+            for (int i = 0; i < pollutionPlacement[j]; i++) {
+                pollution.add(cell);
+            }
+        }
+        return new LegalActivation(snapshot.position, lower, inputs, outputs, pollution);
+    }
+
+    /**
+     * Lazily streams all vectors {@code v} with {@code sum(v) == total}
+     * and {@code 0 <= v[i] <= bounds[i]}.
+     *
+     * @param total  required sum
+     * @param bounds upper bound for each component
+     * @return stream of vectors, empty if the bounds cannot reach the total
+     */
+    static Stream<int[]> compositions(final int total, final int[] bounds) {
+        final int[] capacity = new int[bounds.length + 1];
+        for (int i = bounds.length - 1; i >= 0; i--) {
+            capacity[i] = capacity[i + 1] + bounds[i];
+        }
+        if (total < 0 || capacity[0] < total) {
+            return Stream.empty();
+        }
+        return compositions(total, bounds, capacity, 0, new int[bounds.length]);
+    }
+
+    private static Stream<int[]> compositions(
+            final int remaining, final int[] bounds, final int[] capacity, final int index, final int[] prefix) {
+        if (remaining == 0) {
+            return Stream.of(prefix);
+        }
+        // take at least what the remaining components cannot hold
+        final int min = Math.max(0, remaining - capacity[index + 1]);
+        final int max = Math.min(remaining, bounds[index]);
+        return IntStream.rangeClosed(min, max).boxed().flatMap(taken -> {
+            final int[] next = prefix.clone();
+            next[index] = taken;
+            return compositions(remaining - taken, bounds, capacity, index + 1, next);
+        });
+    }
+
+    private record Snapshot(GridPosition position, List<GridPosition> cells, List<int[]> counts, int[] available) { }
+}
@@ -1,13 +1,18 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
+import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Performs a complex action: moves a card from a {@link Pile}
  * to the player's {@link Grid}.
+ * Every call is reported to the {@link ActionMetrics} given at construction
+ * as {@link ActionType#MOVE_CARD}.
  */
 public final class MoveCard {
     private final int cardIndex;
+    private final EventJournal journal;
+    private final ActionMetrics metrics;
 
     /**
      * Creates a MoveCard action for the given card index.
@@ -16,10 +21,35 @@ public final class MoveCard {
      * @throws IllegalArgumentException if the index is outside the valid range
      */
     public MoveCard(final int cardIndex) {
+        this(cardIndex, null);
+    }
+
+    /**
+     * Creates a MoveCard action that records successful moves in a journal.
+     *
+     * @param cardIndex index of the card in the pile (1..{@link Pile#MAX_VISIBLE_CARDS})
+     * @param journal   journal to record moves in; may be {@code null}
+     * @throws IllegalArgumentException if the index is outside the valid range
+     */
+    public MoveCard(final int cardIndex, final EventJournal journal) {
+        this(cardIndex, journal, ActionMetrics.disabled());
+    }
+
+    /**
+     * Creates a MoveCard action that reports every move to a metrics registry.
+     *
+     * @param cardIndex index of the card in the pile (1..{@link Pile#MAX_VISIBLE_CARDS})
+     * @param journal   journal to record moves in; may be {@code null}
+     * @param metrics   registry to report moves to
+     * @throws IllegalArgumentException if the index is outside the valid range
+     */
+    public MoveCard(final int cardIndex, final EventJournal journal, final ActionMetrics metrics) {
         if (cardIndex < 1 || cardIndex > Pile.MAX_VISIBLE_CARDS) {
             throw new IllegalArgumentException("invalid card index: " + cardIndex);
         }
         this.cardIndex = cardIndex;
+        this.journal = journal;
+        this.metrics = Objects.requireNonNull(metrics, "metrics cannot be null");
     }
 
     /**
@@ -37,23 +67,38 @@ public final class MoveCard {
             final Grid grid
 
     ) {
+        final long start = metrics.start();
+        final RejectionReason reason = move(pile, gridCoordinate, grid);
+        metrics.record(ActionType.MOVE_CARD, reason, start);
+        return reason == null;
+    }
+
+    private RejectionReason move(final Pile pile, final GridPosition gridCoordinate, final Grid grid) {
         if (pile == null || gridCoordinate == null || grid == null) {
-            return false;
+            return RejectionReason.INVALID_ARGUMENT;
         }
         if (!grid.canPutCard(gridCoordinate)) {
-            return false;
+            return RejectionReason.POSITION_OCCUPIED;
         }
 
         // check that the selected card exists in the pile
         final Optional<Card> cardOptional = pile.getCard(cardIndex);
         if (!cardOptional.isPresent()) {
-            return false;
+            return RejectionReason.MISSING_CARD;
+        }
+
+        // the event is prepared before the pile changes, so an applied move is always journaled
+        if (journal != null && !journal.prepareMoveCard(cardIndex, gridCoordinate)) {
+            return RejectionReason.INVALID_ARGUMENT;
         }
 
         final Card card = cardOptional.get();
         pile.takeCard(cardIndex);
         grid.putCard(gridCoordinate, card);
+        if (journal != null) {
+            journal.commit();
+        }
 
-        return true;
+        return null;
     }
 }
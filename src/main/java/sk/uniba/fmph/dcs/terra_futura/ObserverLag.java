@@ -0,0 +1,21 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+/**
+ * Delivery statistics of one asynchronously notified observer.
+ *
+ * @param published         number of states handed to the observer's mailbox
+ * @param delivered         number of states passed to the observer
+ * @param coalesced         number of states dropped because a newer one superseded them
+ * @param failed            number of deliveries where the observer threw an exception
+ * @param pending           number of states currently waiting in the mailbox
+ * @param maxDelayNanos     longest time a delivered state waited in the mailbox
+ * @param lastDelayNanos    time the most recently delivered state waited in the mailbox
+ */
+public record ObserverLag(
+        long published,
+        long delivered,
+        long coalesced,
+        long failed,
+        int pending,
+        long maxDelayNanos,
+        long lastDelayNanos) { }
@@ -1,5 +1,7 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -20,6 +22,23 @@ public final class Pile {
         this.hiddenCards = new ArrayList<>(hiddenCards == null ? Collections.emptyList() : hiddenCards);
     }
 
+    /**
+     * Creates an independent copy of the pile; cards are copied with {@link Card#copy()}.
+     *
+     * @return the copy
+     */
+    public Pile fork() {
+        return new Pile(copyCards(visibleCards), copyCards(hiddenCards));
+    }
+
+    private static List<Card> copyCards(final List<Card> cards) {
+        final List<Card> copies = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            copies.add(card == null ? null : card.copy());
+        }
+        return copies;
+    }
+
     public Optional<Card> getCard(final int index) {
         if (index < 1 || index > visibleCards.size()) {
             return Optional.empty();
@@ -41,6 +60,65 @@ public final class Pile {
     }
 
     public String state() {
-        return "Pile{visible=" + visibleCards.size() + ", hidden=" + hiddenCards.size() + "}";
+        return JsonWriter.toString(this::writeState);
+    }
+
+    public void writeState(final Appendable out) throws IOException {
+        out.append('{');
+        JsonWriter.key(out, "visible");
+        out.append('[');
+        for (int i = 0; i < visibleCards.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            final Card card = visibleCards.get(i);
+            if (card == null) {
+                out.append("null");
+            } else {
+                card.writeState(out);
+            }
+        }
+        out.append("],");
+        JsonWriter.key(out, "hidden");
+        JsonWriter.number(out, hiddenCards.size());
+        out.append('}');
+    }
+
+    /**
+     * Writes the visible and hidden cards in the binary snapshot format.
+     *
+     * @param out destination
+     * @throws IllegalArgumentException if a list has more than 65535 cards or a card cannot be written
+     */
+    public void writeSnapshot(final ByteBuffer out) {
+        writeSnapshot(out, visibleCards);
+        writeSnapshot(out, hiddenCards);
+    }
+
+    public static Pile readSnapshot(final ByteBuffer in) {
+        final List<Card> visible = readSnapshotCards(in);
+        final List<Card> hidden = readSnapshotCards(in);
+        return new Pile(visible, hidden);
+    }
+
+    private static void writeSnapshot(final ByteBuffer out, final List<Card> cards) {
+        SnapshotCodec.writeUnsignedShort(out, cards.size());
+        for (Card card : cards) {
+            if (card == null) {
+                out.put((byte) 0);
+            } else {
+                out.put((byte) 1);
+                card.writeSnapshot(out);
+            }
+        }
+    }
+
+    private static List<Card> readSnapshotCards(final ByteBuffer in) {
+        final int size = Short.toUnsignedInt(in.getShort());
+        final List<Card> cards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cards.add(in.get() == 0 ? null : Card.readSnapshot(in));
+        }
+        return cards;
     }
 }
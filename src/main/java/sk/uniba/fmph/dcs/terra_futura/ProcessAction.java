@@ -11,9 +11,13 @@ import java.util.Objects;
  *
  * The class checks the card's effect and, if valid, delegates the actual
  * resource movement to {@link CardTransactionExecutor}.
+ * Every call is reported to the {@link ActionMetrics} given at construction
+ * as {@link ActionType#ACTIVATION}, or {@link ActionType#BATCH} for {@link #activateCards}.
  */
 public final class ProcessAction {
     private final CardTransactionExecutor transactionExecutor;
+    private final EventJournal journal;
+    private final ActionMetrics metrics;
 
     /**
      * Creates a ProcessAction using the given transaction executor.
@@ -21,7 +25,33 @@ public final class ProcessAction {
      * @param transactionExecutor helper responsible for moving resources on the grid
      */
     public ProcessAction(final CardTransactionExecutor transactionExecutor) {
+        this(transactionExecutor, null);
+    }
+
+    /**
+     * Creates a ProcessAction that records successful activations in a journal.
+     *
+     * @param transactionExecutor helper responsible for moving resources on the grid
+     * @param journal             journal to record activations in; may be {@code null}
+     */
+    public ProcessAction(final CardTransactionExecutor transactionExecutor, final EventJournal journal) {
+        this(transactionExecutor, journal, ActionMetrics.disabled());
+    }
+
+    /**
+     * Creates a ProcessAction that reports every activation to a metrics registry.
+     *
+     * @param transactionExecutor helper responsible for moving resources on the grid
+     * @param journal             journal to record activations in; may be {@code null}
+     * @param metrics             registry to report activations to
+     */
+    public ProcessAction(
+            final CardTransactionExecutor transactionExecutor,
+            final EventJournal journal,
+            final ActionMetrics metrics) {
         this.transactionExecutor = Objects.requireNonNull(transactionExecutor, "Transaction executor cannot be null");
+        this.journal = journal;
+        this.metrics = Objects.requireNonNull(metrics, "Metrics cannot be null");
     }
 
     /**
@@ -52,9 +82,21 @@ public final class ProcessAction {
             final List<Pair<Resource, GridPosition>> inputs,
             final List<Pair<Resource, GridPosition>> outputs,
             final List<GridPosition> pollution) {
+        final long start = metrics.start();
+        final RejectionReason reason = activate(card, grid, inputs, outputs, pollution);
+        metrics.record(ActionType.ACTIVATION, reason, start);
+        return reason == null;
+    }
+
+    private RejectionReason activate(
+            final Card card,
+            final Grid grid,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
 
         if (card == null || grid == null || inputs == null || outputs == null || pollution == null) {
-            return false;
+            return RejectionReason.INVALID_ARGUMENT;
         }
 
         final List<Resource> inputResources = extractResources(inputs);
@@ -63,11 +105,78 @@ public final class ProcessAction {
 
         // check if the card effect allows this activation
         if (!card.check(inputResources, outputResources, pollutionCount)) {
-            return false;
+            return card.isActive() ? RejectionReason.EFFECT_MISMATCH : RejectionReason.INACTIVE_CARD;
+        }
+
+        // the event is prepared before the grid changes, so an applied activation is always journaled
+        if (journal != null && !journal.prepareActivation(inputs, outputs, pollution)) {
+            return RejectionReason.INVALID_ARGUMENT;
         }
 
         // if the effect is valid, perform the actual transaction on the grid
-        return transactionExecutor.execute(grid, inputs, outputs, pollution);
+        final RejectionReason reason = transactionExecutor.executeOrReject(grid, inputs, outputs, pollution);
+        if (reason == null && journal != null) {
+            journal.commit();
+        }
+        return reason;
+    }
+
+    /**
+     * Activates several cards as one step: either all activations are applied or none.
+     * <p>
+     * Every card's effect is checked first; then all resource movements are
+     * passed to {@link CardTransactionExecutor#executeBatch}, so later
+     * activations may use resources produced by earlier ones, and a card made
+     * inactive by the pollution of an earlier activation cannot be activated. The batch
+     * is recorded in the journal as a single event once it was applied. Every call is
+     * reported to the {@link ActionMetrics} given at construction as {@link ActionType#BATCH},
+     * with the same rejection reasons as {@link #activateCard}.
+     *
+     * @param grid        player's grid
+     * @param activations cards with their transactions, in the order they are activated
+     * @return {@code true} if all activations are valid and were applied, {@code false} otherwise
+     */
+    public boolean activateCards(final Grid grid, final List<Pair<Card, CardTransaction>> activations) {
+        final long start = metrics.start();
+        final RejectionReason reason = activateAll(grid, activations);
+        metrics.record(ActionType.BATCH, reason, start);
+        return reason == null;
+    }
+
+    private RejectionReason activateAll(final Grid grid, final List<Pair<Card, CardTransaction>> activations) {
+        if (grid == null || activations == null) {
+            return RejectionReason.INVALID_ARGUMENT;
+        }
+
+        final List<CardTransaction> transactions = new ArrayList<>(activations.size());
+        final List<Card> cards = new ArrayList<>(activations.size());
+        for (Pair<Card, CardTransaction> activation : activations) {
+            if (activation == null || activation.getLeft() == null || activation.getRight() == null) {
+                return RejectionReason.INVALID_ARGUMENT;
+            }
+            final Card card = activation.getLeft();
+            final CardTransaction transaction = activation.getRight();
+            if (!card.check(
+                    extractResources(transaction.inputs()),
+                    extractResources(transaction.outputs()),
+                    transaction.pollution().size())) {
+                return card.isActive() ? RejectionReason.EFFECT_MISMATCH : RejectionReason.INACTIVE_CARD;
+            }
+            transactions.add(transaction);
+            cards.add(card);
+        }
+
+        // the whole batch is one journal event, so a crash cannot leave a part of it behind
+        if (journal != null && !journal.prepareBatch(transactions)) {
+            return RejectionReason.INVALID_ARGUMENT;
+        }
+
+        // the executor also checks that each card is still active when its turn comes
+        final RejectionReason reason = transactionExecutor.applyBatch(grid, transactions, cards);
+        if (reason == null && journal != null) {
+            journal.commit();
+        }
+        return reason;
     }
 
     /**
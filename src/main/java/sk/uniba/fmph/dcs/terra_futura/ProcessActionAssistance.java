@@ -12,9 +12,13 @@ import java.util.Objects;
  * The class validates the requested activation (card effect and
  * assistance parameters) and, if valid, delegates the actual
  * resource and pollution movement to {@link CardTransactionExecutor}.
+ * Every call is reported to the {@link ActionMetrics} given at construction
+ * as {@link ActionType#ASSISTED_ACTIVATION}.
  */
 public final class ProcessActionAssistance {
     private final CardTransactionExecutor transactionExecutor;
+    private final EventJournal journal;
+    private final ActionMetrics metrics;
 
     /**
      * Creates a ProcessActionAssistance using the given transaction executor.
@@ -22,9 +26,35 @@ public final class ProcessActionAssistance {
      * @param transactionExecutor helper responsible for moving resources on the grid
      */
     ProcessActionAssistance(final CardTransactionExecutor transactionExecutor) {
+        this(transactionExecutor, null);
+    }
+
+    /**
+     * Creates a ProcessActionAssistance using the given transaction executor and journal.
+     *
+     * @param transactionExecutor helper responsible for moving resources on the grid
+     * @param journal             journal to record activations in; may be {@code null}
+     */
+    ProcessActionAssistance(final CardTransactionExecutor transactionExecutor, final EventJournal journal) {
+        this(transactionExecutor, journal, ActionMetrics.disabled());
+    }
+
+    /**
+     * Creates a ProcessActionAssistance using the given transaction executor, journal and metrics.
+     *
+     * @param transactionExecutor helper responsible for moving resources on the grid
+     * @param journal             journal to record activations in; may be {@code null}
+     * @param metrics             registry to report activations to
+     */
+    ProcessActionAssistance(
+            final CardTransactionExecutor transactionExecutor,
+            final EventJournal journal,
+            final ActionMetrics metrics) {
         this.transactionExecutor = Objects.requireNonNull(
                 transactionExecutor, "transactionExecutor cannot be null"
         );
+        this.journal = journal;
+        this.metrics = Objects.requireNonNull(metrics, "metrics cannot be null");
     }
 
     /**
@@ -34,6 +64,26 @@ public final class ProcessActionAssistance {
         this(new CardTransactionExecutor());
     }
 
+    /**
+     * Creates a ProcessActionAssistance that records successful activations in a journal.
+     *
+     * @param journal journal to record activations in; may be {@code null}
+     */
+    public ProcessActionAssistance(final EventJournal journal) {
+        this(new CardTransactionExecutor(), journal);
+    }
+
+    /**
+     * Creates a ProcessActionAssistance that reports activations and their
+     * transactions to a metrics registry.
+     *
+     * @param journal journal to record activations in; may be {@code null}
+     * @param metrics registry to report activations to
+     */
+    public ProcessActionAssistance(final EventJournal journal, final ActionMetrics metrics) {
+        this(new CardTransactionExecutor(metrics), journal, metrics);
+    }
+
     /**
      * Activates a card on the grid using the given input/output resources and pollution.
      *
@@ -61,16 +111,30 @@ public final class ProcessActionAssistance {
             final List<Pair<Resource, GridPosition>> inputs,
             final List<Pair<Resource, GridPosition>> outputs,
             final List<GridPosition> pollution) {
+        final long start = metrics.start();
+        final RejectionReason reason = activate(card, grid, assistingPlayer, assistingCard, inputs, outputs, pollution);
+        metrics.record(ActionType.ASSISTED_ACTIVATION, reason, start);
+        return reason == null;
+    }
+
+    private RejectionReason activate(
+            final Card card,
+            final Grid grid,
+            final int assistingPlayer,
+            final Card assistingCard,
+            final List<Pair<Resource, GridPosition>> inputs,
+            final List<Pair<Resource, GridPosition>> outputs,
+            final List<GridPosition> pollution) {
 
         if (card == null || grid == null || inputs == null || outputs == null || pollution == null) {
-            return false;
+            return RejectionReason.INVALID_ARGUMENT;
         }
 
         // validate assistance metadata only if the card
         // effect actually provides Assistance
         if (card.hasAssistance()) {
             if (assistingCard == null || assistingPlayer < 0) {
-                return false;
+                return RejectionReason.ASSISTANCE_MISSING;
             }
         }
 
@@ -80,11 +144,22 @@ public final class ProcessActionAssistance {
 
         // check if the card effect allows this activation
         if (!card.check(inputResources, outputResources, pollutionCount)) {
-            return false;
+            return card.isActive() ? RejectionReason.EFFECT_MISMATCH : RejectionReason.INACTIVE_CARD;
+        }
+
+        // the event is prepared before the grid changes, so an applied activation is always journaled
+        if (journal != null && !(card.hasAssistance()
+                ? journal.prepareAssistedActivation(assistingPlayer, inputs, outputs, pollution)
+                : journal.prepareActivation(inputs, outputs, pollution))) {
+            return RejectionReason.INVALID_ARGUMENT;
         }
 
         // if the effect is valid, perform the actual transaction on the grid
-        return transactionExecutor.execute(grid, inputs, outputs, pollution);
+        final RejectionReason reason = transactionExecutor.executeOrReject(grid, inputs, outputs, pollution);
+        if (reason == null && journal != null) {
+            journal.commit();
+        }
+        return reason;
     }
 
     /**
@@ -0,0 +1,35 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+/**
+ * Why an action was rejected, as counted by {@link ActionMetrics}.
+ */
+public enum RejectionReason {
+    /**
+     * An argument was {@code null} or otherwise malformed.
+     */
+    INVALID_ARGUMENT,
+    /**
+     * A referenced grid cell or pile slot holds no card.
+     */
+    MISSING_CARD,
+    /**
+     * The target grid position already holds a card.
+     */
+    POSITION_OCCUPIED,
+    /**
+     * A card does not hold the resources to be paid.
+     */
+    INSUFFICIENT_RESOURCES,
+    /**
+     * A card is inactive because of pollution.
+     */
+    INACTIVE_CARD,
+    /**
+     * The card's effect does not allow the requested activation.
+     */
+    EFFECT_MISMATCH,
+    /**
+     * The card provides assistance but no assisting player or card was given.
+     */
+    ASSISTANCE_MISSING
+}
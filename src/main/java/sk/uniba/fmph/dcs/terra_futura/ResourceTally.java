@@ -0,0 +1,110 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.Arrays;
+
+/**
+ * Running per-Resource totals of a grid as used for end-game scoring.
+ *
+ * Active cards contribute all their non-pollution resources; a card that holds
+ * pollution or is inactive contributes a single {@link Resource#POLLUTION}.
+ * The contribution of every cell is remembered, so a changed card is
+ * accounted for in O(|Resource|).
+ */
+final class ResourceTally {
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int POLLUTION = Resource.POLLUTION.ordinal();
+
+    private final int[] totals = new int[Card.RESOURCE_COUNT];
+    private final int[][] contributions = new int[GridPosition.CELL_COUNT][Card.RESOURCE_COUNT];
+    private final boolean[] occupied = new boolean[GridPosition.CELL_COUNT];
+    private final boolean[] active = new boolean[GridPosition.CELL_COUNT];
+    private int activeCards;
+    private int pollutedCards;
+
+    /**
+     * Collects the resources of all cards on the grid.
+     *
+     * @param grid grid to read
+     * @return a tally of the grid
+     */
+    static ResourceTally of(final Grid grid) {
+        final ResourceTally tally = new ResourceTally();
+        for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+            final Card card = grid.getCardAt(index);
+            if (card != null) {
+                tally.update(index, card);
+            }
+        }
+        return tally;
+    }
+
+    /**
+     * Replaces the contribution of one cell by the current state of its card.
+     *
+     * @param index cell index
+     * @param card  card at the cell
+     */
+    void update(final int index, final Card card) {
+        final int[] contribution = contributions[index];
+        if (occupied[index]) {
+            for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                totals[r] -= contribution[r];
+            }
+            activeCards -= active[index] ? 1 : 0;
+            pollutedCards -= contribution[POLLUTION];
+        }
+
+        boolean polluted = card.getResourceCount(Resource.POLLUTION) > 0;
+        active[index] = card.isActive();
+        if (active[index]) {
+            for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+                contribution[r] = r == POLLUTION ? 0 : card.getResourceCount(RESOURCES[r]);
+            }
+        } else {
+            Arrays.fill(contribution, 0);
+            polluted = true;
+        }
+        contribution[POLLUTION] = polluted ? 1 : 0;
+        occupied[index] = true;
+
+        for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+            totals[r] += contribution[r];
+        }
+        activeCards += active[index] ? 1 : 0;
+        pollutedCards += contribution[POLLUTION];
+    }
+
+    /**
+     * @param resource resource type
+     * @return number of scored resources of the given type;
+     * for {@link Resource#POLLUTION} the number of polluted cards
+     */
+    int count(final Resource resource) {
+        return totals[resource.ordinal()];
+    }
+
+    /**
+     * @return number of active cards
+     */
+    int activeCards() {
+        return activeCards;
+    }
+
+    /**
+     * @return number of cards holding pollution or being inactive
+     */
+    int pollutedCards() {
+        return pollutedCards;
+    }
+
+    /**
+     * @return sum of {@link Resource#getValue()} over all scored resources
+     */
+    int basicPoints() {
+        int points = 0;
+        for (int r = 0; r < Card.RESOURCE_COUNT; r++) {
+            points += RESOURCES[r].getValue() * totals[r];
+        }
+        return points;
+    }
+}
@@ -0,0 +1,98 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Distribution of final scores over many simulated games.
+ */
+public final class ScoreDistribution {
+    private final TreeMap<Integer, Long> frequencies = new TreeMap<>();
+    private long games;
+    private long sum;
+    private long sumOfSquares;
+
+    /**
+     * Adds the score of one game.
+     *
+     * @param score final score
+     */
+    public void add(final int score) {
+        frequencies.merge(score, 1L, Long::sum);
+        games++;
+        sum += score;
+        sumOfSquares += (long) score * score;
+    }
+
+    /**
+     * Adds all games of another distribution to this one.
+     *
+     * @param other distribution to merge
+     */
+    public void merge(final ScoreDistribution other) {
+        for (Map.Entry<Integer, Long> entry : other.frequencies.entrySet()) {
+            frequencies.merge(entry.getKey(), entry.getValue(), Long::sum);
+        }
+        games += other.games;
+        sum += other.sum;
+        sumOfSquares += other.sumOfSquares;
+    }
+
+    /**
+     * @return number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return number of games per score, ordered by score
+     */
+    public NavigableMap<Integer, Long> getFrequencies() {
+        return Collections.unmodifiableNavigableMap(frequencies);
+    }
+
+    /**
+     * @return average score, or 0 if there are no games
+     */
+    public double getMean() {
+        return games == 0 ? 0 : (double) sum / games;
+    }
+
+    /**
+     * @return population standard deviation of the scores, or 0 if there are no games
+     */
+    public double getStandardDeviation() {
+        if (games == 0) {
+            return 0;
+        }
+        final double mean = getMean();
+        return Math.sqrt(Math.max(0, (double) sumOfSquares / games - mean * mean));
+    }
+
+    /**
+     * @param percentile percentile between 0 and 100
+     * @return the smallest score such that at least the given percentage of games scored at most that much
+     * @throws IllegalArgumentException if the percentile is out of range
+     * @throws IllegalStateException if there are no games
+     */
+    public int getPercentile(final double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (games == 0) {
+            throw new IllegalStateException("No games in the distribution");
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * games));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : frequencies.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return entry.getKey();
+            }
+        }
+        return frequencies.lastKey();
+    }
+}
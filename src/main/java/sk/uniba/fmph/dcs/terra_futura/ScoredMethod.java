@@ -0,0 +1,10 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+/**
+ * One scoring option evaluated by {@link ScoringEvaluator}.
+ *
+ * @param method the scoring method
+ * @param index  position of the method in the evaluated list
+ * @param points total points the method would award
+ */
+public record ScoredMethod(ScoringMethod method, int index, Points points) { }
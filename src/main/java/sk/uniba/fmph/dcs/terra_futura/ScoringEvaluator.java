@@ -0,0 +1,80 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Scores many {@link ScoringMethod} options at once, without selecting any of them.
+ * <p>
+ * The resources of a grid are collected once, and every option is then scored
+ * against that tally in O(|Resource|). Only the pattern and points of an option
+ * are used, so the same options can be evaluated for every player's grid.
+ * {@link #rankAll(Map, List)} evaluates the players in parallel; the grids must
+ * not be modified while they are evaluated.
+ */
+public final class ScoringEvaluator {
+    private static final Comparator<ScoredMethod> RANKING = Comparator
+            .comparingInt((ScoredMethod scored) -> scored.points().value()).reversed()
+            .thenComparingInt(ScoredMethod::index);
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an evaluator running on the common pool.
+     */
+    public ScoringEvaluator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an evaluator running on the given pool.
+     *
+     * @param pool pool used by {@link #rankAll(Map, List)}
+     */
+    public ScoringEvaluator(final ForkJoinPool pool) {
+        this.pool = Objects.requireNonNull(pool, "pool cannot be null");
+    }
+
+    /**
+     * Scores every option against one grid.
+     *
+     * @param grid    grid to score
+     * @param methods scoring options
+     * @return the options ordered from the most to the fewest points; ties keep the list order
+     */
+    public List<ScoredMethod> rank(final Grid grid, final List<ScoringMethod> methods) {
+        Objects.requireNonNull(grid, "grid cannot be null");
+        Objects.requireNonNull(methods, "methods cannot be null");
+        return rank(ResourceTally.of(grid), methods);
+    }
+
+    /**
+     * Scores every option against the grid of every player, players in parallel.
+     *
+     * @param grids   grid of each player, by player id
+     * @param methods scoring options
+     * @return ranked options of each player, see {@link #rank(Grid, List)}
+     */
+    public Map<Integer, List<ScoredMethod>> rankAll(final Map<Integer, Grid> grids, final List<ScoringMethod> methods) {
+        Objects.requireNonNull(grids, "grids cannot be null");
+        Objects.requireNonNull(methods, "methods cannot be null");
+        return pool.submit(() -> grids.entrySet().parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> rank(entry.getValue(), methods))))
+                .join();
+    }
+
+    private static List<ScoredMethod> rank(final ResourceTally tally, final List<ScoringMethod> methods) {
+        final List<ScoredMethod> scored = new ArrayList<>(methods.size());
+        for (int i = 0; i < methods.size(); i++) {
+            final ScoringMethod method = methods.get(i);
+            scored.add(new ScoredMethod(method, i, method.calculate(tally)));
+        }
+        scored.sort(RANKING);
+        return scored;
+    }
+}
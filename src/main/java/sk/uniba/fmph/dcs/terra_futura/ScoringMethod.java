@@ -1,11 +1,7 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import java.util.EnumMap;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -13,13 +9,17 @@ import java.util.Optional;
  * Represents one end–game scoring option chosen from a scoring card.
  */
 public final class ScoringMethod {
+    private static final Resource[] RESOURCES = Resource.values();
+
     private final List<Resource> resources;
+    private final int[] pattern = new int[Card.RESOURCE_COUNT];
     private final Points pointsPerCombination;
     private Optional<Points> calculatedTotal = Optional.empty();
     private final Grid grid;
-
-    private static final int MIN_COORD = -2;
-    private static final int MAX_COORD = 2;
+    private ResourceTally tally;
+    private GridListener listener;
+    private long modCount;
+    private CachedState stateCache;
 
     /**
      * Creates a scoring method with the given resource pattern and points.
@@ -40,116 +40,192 @@ public final class ScoringMethod {
         }
 
         this.resources = List.copyOf(resources);
+        for (Resource resource : this.resources) {
+            pattern[resource.ordinal()]++;
+        }
         this.pointsPerCombination = pointsPerCombination;
         this.grid = grid;
     }
 
+    /**
+     * Creates a scoring method that keeps its total up to date as the grid changes.
+     * The method listens to card placements and resource changes on the grid,
+     * so {@link #getCalculatedTotal()} is always present and never stale.
+     * Call {@link #stopTracking()} when the method is no longer needed.
+     *
+     * @param resources            multiset of required resources for one set
+     * @param pointsPerCombination points awarded for each complete set
+     * @param grid                 grid used to read final resources for scoring
+     * @return the incremental scoring method
+     * @throws NullPointerException if any argument is {@code null}
+     * @throws IllegalArgumentException if {@code resources} is empty
+     */
+    public static ScoringMethod incremental(final List<Resource> resources, final Points pointsPerCombination, final Grid grid) {
+        final ScoringMethod method = new ScoringMethod(resources, pointsPerCombination, grid);
+        method.tally = ResourceTally.of(grid);
+        method.listener = (position, card) -> {
+            method.tally.update(position.getIndex(), card);
+            method.calculatedTotal = Optional.empty();
+            method.modCount++;
+        };
+        grid.addListener(method.listener);
+        return method;
+    }
+
+    /**
+     * Stops following changes of the grid; the last total is kept.
+     * Has no effect on methods not created by {@link #incremental}.
+     */
+    public void stopTracking() {
+        if (listener != null) {
+            getCalculatedTotal();
+            grid.removeListener(listener);
+            listener = null;
+            tally = null;
+        }
+    }
+
+    /**
+     * @return {@code true} if this method keeps its total up to date with the grid
+     */
+    public boolean isIncremental() {
+        return listener != null;
+    }
+
     /**
      * Calculates the total points for this scoring method.
      */
     public void selectThisMethodAndCalculate() {
         // 1) collect all resources from the grid into a multiset.
-        final Map<Resource, Integer> totalResources = new EnumMap<>(Resource.class);
-        for (Resource resource : Resource.values()) {
-            totalResources.put(resource, 0);
-        }
+        final ResourceTally totalResources = tally != null ? tally : ResourceTally.of(grid);
 
-        for (int x = MIN_COORD; x <= MAX_COORD; x++) {
-            for (int y = MIN_COORD; y <= MAX_COORD; y++) {
-                final Optional<Card> cardOptional = grid.getCard(new GridPosition(x, y));
-                // check if the card is present
-                if (!cardOptional.isPresent()) {
-                    continue;
-                }
-
-                // the card is present, calculate its resources
-                final Card card = cardOptional.get();
-                final List<Resource> cardResources = card.getResources();
-                boolean cardHasPollution = false;
-
-                if (card.isActive()) {
-                    // active cards: all non-pollution resources count, pollution only flags the card.
-                    for (Resource resource : cardResources) {
-                        if (resource == Resource.POLLUTION) {
-                            cardHasPollution = true;
-                        } else {
-                            totalResources.put(resource, totalResources.get(resource) + 1);
-                        }
-                    }
-                } else {
-                    cardHasPollution = true;
-                }
-
-                if (cardHasPollution) {
-                    totalResources.put(Resource.POLLUTION, totalResources.get(Resource.POLLUTION) + 1);
-                }
-            }
-        }
+        calculatedTotal = Optional.of(calculate(totalResources));
+        modCount++;
+    }
 
+    /**
+     * Scores this method against a tally without storing the result.
+     *
+     * @param totalResources resources on a grid, not necessarily this method's grid
+     * @return total points
+     */
+    Points calculate(final ResourceTally totalResources) {
         // 2) calculate basic score from all collected resources
-        int basicPointValue = 0;
-        for (Map.Entry<Resource, Integer> entry : totalResources.entrySet()) {
-            final Resource resource = entry.getKey();
-            final int count = entry.getValue();
-            basicPointValue += resource.getValue() * count;
-        }
+        int totalPointValue = totalResources.basicPoints();
 
         // 3) extra points for full scoring combinations defined by 'this.resources'
-        int totalPointValue = basicPointValue;
-
-        if (!resources.isEmpty()) {
-            // work on a mutable copy of the resource multiset
-            final Map<Resource, Integer> remaining = new EnumMap<>(totalResources);
-            int combinations = 0;
-
-            // treat 'resources' as a multiset pattern; each loop tries to take one full pattern
-            while (true) {
-                boolean canFormCombination = true;
-
-                for (Resource required : resources) {
-                    int available = remaining.getOrDefault(required, 0);
-                    if (available <= 0) {
-                        canFormCombination = false;
-                        break;
-                    }
-                    remaining.put(required, available - 1);
-                }
-
-                if (!canFormCombination) {
-                    break;
-                }
-
-                combinations++;
-            }
+        totalPointValue += combinations(pattern, totalResources) * pointsPerCombination.value();
+
+        return new Points(totalPointValue);
+    }
 
-            totalPointValue += combinations * pointsPerCombination.value();
+    /**
+     * Counts how many full copies of the pattern can be formed from the tallied resources,
+     * as {@code min(available[r] / required[r])} over the required resource types.
+     *
+     * @param pattern required count per resource, indexed by {@link Resource#ordinal()}
+     * @param tally   resources available on the grid
+     * @return number of complete combinations
+     */
+    static int combinations(final int[] pattern, final ResourceTally tally) {
+        int combinations = Integer.MAX_VALUE;
+        for (Resource resource : RESOURCES) {
+            final int required = pattern[resource.ordinal()];
+            if (required > 0) {
+                combinations = Math.min(combinations, tally.count(resource) / required);
+            }
         }
+        return combinations == Integer.MAX_VALUE ? 0 : combinations;
+    }
 
-        Points total = new Points(totalPointValue);
-        calculatedTotal = Optional.of(total);
+    /**
+     * @param resource resource type
+     * @return number of resources of the given type required for one combination
+     */
+    public int getRequiredCount(final Resource resource) {
+        return pattern[resource.ordinal()];
+    }
+
+    /**
+     * @return the scoring pattern as a count per resource, indexed by
+     * {@link Resource#ordinal()}; must not be modified
+     */
+    int[] getPattern() {
+        return pattern;
     }
 
     /**
      * @return calculated total points for this scoring method, if available.
+     * Incremental methods always have a total, recalculated only after the grid changed.
      */
     public Optional<Points> getCalculatedTotal() {
+        if (tally != null && calculatedTotal.isEmpty()) {
+            calculatedTotal = Optional.of(calculate(tally));
+        }
         return calculatedTotal;
     }
 
     /**
+     * @return number of times the total was calculated or invalidated by a change of the grid
+     */
+    public long getModCount() {
+        return modCount;
+    }
+
+    /**
+     * Returns the state of the scoring method as JSON. It is built only once per
+     * {@link #getModCount() modification count}.
+     *
      * @return the state of the scoring method as a JSON string
      */
     public String state() {
-        final JSONObject json = new JSONObject();
+        final long version = modCount;
+        final CachedState cache = stateCache;
+        if (CachedState.isValid(cache, version)) {
+            return cache.json();
+        }
+        final String json = JsonWriter.toString(this::writeFields);
+        stateCache = new CachedState(version, json);
+        return json;
+    }
 
-        final JSONArray resourcesArray = new JSONArray();
-        for (Resource resource : resources) {
-            resourcesArray.put(resource.name());
+    /**
+     * Writes the state of the scoring method as JSON, see {@link #state()}. A current cached
+     * state is appended as is, otherwise the state is streamed to the destination
+     * without building or caching a string.
+     *
+     * @param out destination
+     * @throws IOException if the destination fails
+     */
+    public void writeState(final Appendable out) throws IOException {
+        final CachedState cache = stateCache;
+        if (CachedState.isValid(cache, modCount)) {
+            out.append(cache.json());
+            return;
         }
-        json.put("resources", resourcesArray);
-        json.put("pointsPerCombination", pointsPerCombination.value());
-        calculatedTotal.ifPresent(points -> json.put("calculatedTotal", points.value()));
+        writeFields(out);
+    }
 
-        return json.toString();
+    private void writeFields(final Appendable out) throws IOException {
+        out.append('{');
+        JsonWriter.key(out, "resources");
+        out.append('[');
+        for (int i = 0; i < resources.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append('"').append(resources.get(i).name()).append('"');
+        }
+        out.append("],");
+        JsonWriter.key(out, "pointsPerCombination");
+        JsonWriter.number(out, pointsPerCombination.value());
+
+        final Optional<Points> total = getCalculatedTotal();
+        if (total.isPresent()) {
+            out.append(',');
+            JsonWriter.key(out, "calculatedTotal");
+            JsonWriter.number(out, total.get().value());
+        }
+        out.append('}');
     }
 }
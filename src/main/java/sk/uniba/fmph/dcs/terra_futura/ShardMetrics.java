@@ -0,0 +1,19 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+/**
+ * Load statistics of one shard of a {@link GameSessionManager}.
+ *
+ * @param shard             index of the shard
+ * @param games             number of games currently assigned to the shard
+ * @param queueDepth        number of actions currently waiting in the shard's queue
+ * @param maxQueueDepth     largest queue depth observed so far
+ * @param executed          number of actions the shard has finished running
+ * @param rejected          number of actions refused because the queue was full
+ */
+public record ShardMetrics(
+        int shard,
+        int games,
+        int queueDepth,
+        int maxQueueDepth,
+        long executed,
+        long rejected) { }
@@ -0,0 +1,91 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.random.RandomGenerator;
+
+/**
+ * Decisions taken by a simulated player, see {@link GameSimulator}.
+ * <p>
+ * Every method receives the non-empty list of legal choices and the game's
+ * random generator; a policy must use only that generator for randomness,
+ * so a game played with the same seed is always the same.
+ */
+public interface SimulationPolicy {
+
+    /**
+     * @param cardIndices indices of the visible cards in the pile
+     * @param pile        the pile
+     * @param grid        player's grid
+     * @param random      random generator of the game
+     * @return index of the card to take, one of {@code cardIndices}
+     */
+    int chooseCard(List<Integer> cardIndices, Pile pile, Grid grid, RandomGenerator random);
+
+    /**
+     * @param positions free positions on the grid
+     * @param card      card being placed
+     * @param grid      player's grid
+     * @param random    random generator of the game
+     * @return position for the card, one of {@code positions}
+     */
+    GridPosition choosePosition(List<GridPosition> positions, Card card, Grid grid, RandomGenerator random);
+
+    /**
+     * @param activations legal activations of one card
+     * @param grid        player's grid
+     * @param random      random generator of the game
+     * @return activation to perform, or empty to skip the card
+     */
+    Optional<LegalActivation> chooseActivation(List<LegalActivation> activations, Grid grid, RandomGenerator random);
+
+    /**
+     * @param patternCount number of available activation patterns
+     * @param grid         player's grid
+     * @param random       random generator of the game
+     * @return index of the activation pattern to select
+     */
+    int chooseActivationPattern(int patternCount, Grid grid, RandomGenerator random);
+
+    /**
+     * @param methods available scoring methods
+     * @param grid    player's grid
+     * @param random  random generator of the game
+     * @return index of the scoring method to select
+     */
+    int chooseScoringMethod(List<ScoringMethod> methods, Grid grid, RandomGenerator random);
+
+    /**
+     * @return policy that picks uniformly among the legal choices and never skips an activation
+     */
+    static SimulationPolicy random() {
+        return new SimulationPolicy() {
+            @Override
+            public int chooseCard(final List<Integer> cardIndices, final Pile pile, final Grid grid, final RandomGenerator random) {
+                return cardIndices.get(random.nextInt(cardIndices.size()));
+            }
+
+            @Override
+            public GridPosition choosePosition(
+                    final List<GridPosition> positions, final Card card, final Grid grid, final RandomGenerator random) {
+                return positions.get(random.nextInt(positions.size()));
+            }
+
+            @Override
+            public Optional<LegalActivation> chooseActivation(
+                    final List<LegalActivation> activations, final Grid grid, final RandomGenerator random) {
+                return Optional.of(activations.get(random.nextInt(activations.size())));
+            }
+
+            @Override
+            public int chooseActivationPattern(final int patternCount, final Grid grid, final RandomGenerator random) {
+                return random.nextInt(patternCount);
+            }
+
+            @Override
+            public int chooseScoringMethod(final List<ScoringMethod> methods, final Grid grid, final RandomGenerator random) {
+                return random.nextInt(methods.size());
+            }
+        };
+    }
+}
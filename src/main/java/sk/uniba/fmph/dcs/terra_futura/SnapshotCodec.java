@@ -0,0 +1,139 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of effects and resource lists shared by the
+ * {@code writeSnapshot}/{@code readSnapshot} methods, see {@link GameSnapshot}.
+ * <p>
+ * An effect starts with a tag byte. Resource lists are a length byte followed
+ * by one ordinal byte per resource, so their order is preserved.
+ */
+final class SnapshotCodec {
+    private static final Resource[] RESOURCES = Resource.values();
+    private static final int MAX_BYTE = 0xFF;
+    private static final int MAX_SHORT = 0xFFFF;
+
+    private static final byte NO_EFFECT = 0;
+    private static final byte TRANSFORMATION_FIXED = 1;
+    private static final byte ARBITRARY_BASIC = 2;
+    private static final byte EFFECT_OR = 3;
+
+    private SnapshotCodec() {
+    }
+
+    /**
+     * Writes an effect tree.
+     *
+     * @param out    destination
+     * @param effect effect to write; may be {@code null}
+     * @throws IllegalArgumentException if the effect is not one of the built-in effect types
+     */
+    static void writeEffect(final ByteBuffer out, final Effect effect) {
+        if (effect == null) {
+            out.put(NO_EFFECT);
+        } else if (effect instanceof TransformationFixed fixed) {
+            out.put(TRANSFORMATION_FIXED);
+            writeResources(out, fixed.getFrom());
+            writeResources(out, fixed.getTo());
+            writeUnsignedByte(out, fixed.getPollution());
+        } else if (effect instanceof ArbitraryBasic arbitrary) {
+            out.put(ARBITRARY_BASIC);
+            writeUnsignedByte(out, arbitrary.getFrom());
+            writeResources(out, arbitrary.getTo());
+            writeUnsignedByte(out, arbitrary.getPollution());
+        } else if (effect instanceof EffectOr or) {
+            out.put(EFFECT_OR);
+            writeUnsignedByte(out, or.getEffects().size());
+            for (Effect child : or.getEffects()) {
+                writeEffect(out, child);
+            }
+        } else {
+            throw new IllegalArgumentException("Effect cannot be written to a snapshot: " + effect.state());
+        }
+    }
+
+    /**
+     * Reads an effect tree written by {@link #writeEffect}.
+     *
+     * @param in source
+     * @return the effect, or {@code null} if none was written
+     * @throws IllegalArgumentException if the data is not a valid effect
+     */
+    static Effect readEffect(final ByteBuffer in) {
+        final byte tag = in.get();
+        switch (tag) {
+            case NO_EFFECT:
+                return null;
+            case TRANSFORMATION_FIXED: {
+                final List<Resource> from = readResources(in);
+                final List<Resource> to = readResources(in);
+                return new TransformationFixed(from, to, readUnsignedByte(in));
+            }
+            case ARBITRARY_BASIC: {
+                final int from = readUnsignedByte(in);
+                final List<Resource> to = readResources(in);
+                return new ArbitraryBasic(from, to, readUnsignedByte(in));
+            }
+            case EFFECT_OR: {
+                final int count = readUnsignedByte(in);
+                final List<Effect> effects = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    effects.add(readEffect(in));
+                }
+                return new EffectOr(effects);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown effect tag: " + tag);
+        }
+    }
+
+    static void writeResources(final ByteBuffer out, final List<Resource> resources) {
+        writeUnsignedByte(out, resources.size());
+        for (Resource resource : resources) {
+            out.put((byte) resource.ordinal());
+        }
+    }
+
+    static List<Resource> readResources(final ByteBuffer in) {
+        final int size = readUnsignedByte(in);
+        final Resource[] resources = new Resource[size];
+        for (int i = 0; i < size; i++) {
+            resources[i] = resource(in.get());
+        }
+        return List.of(resources);
+    }
+
+    static Resource resource(final int ordinal) {
+        if (ordinal < 0 || ordinal >= RESOURCES.length) {
+            throw new IllegalArgumentException("Unknown resource: " + ordinal);
+        }
+        return RESOURCES[ordinal];
+    }
+
+    static void writeUnsignedByte(final ByteBuffer out, final int value) {
+        if (value < 0 || value > MAX_BYTE) {
+            throw new IllegalArgumentException("Value does not fit into a byte: " + value);
+        }
+        out.put((byte) value);
+    }
+
+    static int readUnsignedByte(final ByteBuffer in) {
+        return in.get() & MAX_BYTE;
+    }
+
+    static void writeUnsignedShort(final ByteBuffer out, final int value) {
+        if (value < 0 || value > MAX_SHORT) {
+            throw new IllegalArgumentException("Value does not fit into a short: " + value);
+        }
+        out.putShort((short) value);
+    }
+
+    static void requireSignedByte(final int value) {
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Value does not fit into a byte: " + value);
+        }
+    }
+}
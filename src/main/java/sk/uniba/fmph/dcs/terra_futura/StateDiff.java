@@ -0,0 +1,222 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Tracks the last state sent to each observer and produces compact patches.
+ * <p>
+ * For a {@link Grid}, the first patch of that grid sent to a player is complete
+ * ({@code "full": true}); later patches of the same grid list only cells whose card is new
+ * (with the whole card) or whose resource counts or activity changed
+ * (with just the changed counts). Other components, such as
+ * {@link ScoringMethod#state()} or {@link ActivationPattern#state()}, are sent
+ * only when their state differs from the last one sent.
+ * <p>
+ * The resulting strings are meant to be passed to {@link GameObserver#notifyAll(Map)}.
+ */
+public final class StateDiff {
+    private static final Resource[] RESOURCES = Resource.values();
+
+    private final Map<Integer, PlayerView> views = new HashMap<>();
+
+    /**
+     * Produces the grid patch for a player and remembers the grid as sent.
+     * Each grid a player observes is tracked under its own key, which the patch
+     * carries as {@code "grid"}, so patches of several grids sent to one player
+     * are each relative to that grid. The grid is read with {@link Grid#read},
+     * so a concurrent grid may be changed by its game thread meanwhile.
+     *
+     * @param playerId the identifier of the player
+     * @param gridKey  name of the grid for the player, such as the identifier of its owner
+     * @param grid     current grid
+     * @return the patch, or empty if nothing changed since the last patch of this grid
+     */
+    public Optional<String> gridPatch(final int playerId, final String gridKey, final Grid grid) {
+        Objects.requireNonNull(gridKey, "gridKey cannot be null");
+        Objects.requireNonNull(grid, "grid cannot be null");
+        final PlayerView player = views.computeIfAbsent(playerId, id -> new PlayerView());
+        final GridView sent = player.grids.get(gridKey);
+        // the view is replaced only after read() returned, because an optimistic read may be repeated
+        final GridPatch patch = grid.read(current -> diff(gridKey, current, sent));
+        player.grids.put(gridKey, patch.view());
+        return Optional.ofNullable(patch.json());
+    }
+
+    private static GridPatch diff(final String gridKey, final Grid grid, final GridView sent) {
+        final boolean full = sent == null;
+        final GridView view = full ? new GridView() : sent.copy();
+        final StringBuilder out = new StringBuilder();
+        int cellCount = 0;
+        try {
+            out.append('{');
+            JsonWriter.key(out, "grid");
+            JsonWriter.string(out, gridKey);
+            out.append(',');
+            JsonWriter.key(out, "full");
+            JsonWriter.bool(out, full);
+            out.append(',');
+            JsonWriter.key(out, "cells");
+            out.append('[');
+            for (int index = 0; index < GridPosition.CELL_COUNT; index++) {
+                final Card card = grid.getCardAt(index);
+                if (card == null) {
+                    continue;
+                }
+                final int[] counts = view.counts[index];
+                final boolean active = card.isActive();
+
+                if (view.cards[index] != card) {
+                    startCell(out, cellCount++, index);
+                    out.append(',');
+                    JsonWriter.key(out, "card");
+                    card.writeState(out);
+                    out.append('}');
+                    view.cards[index] = card;
+                    for (int r = 0; r < RESOURCES.length; r++) {
+                        counts[r] = card.getResourceCount(RESOURCES[r]);
+                    }
+                    view.active[index] = active;
+                    continue;
+                }
+
+                boolean changed = false;
+                for (int r = 0; r < RESOURCES.length; r++) {
+                    final int count = card.getResourceCount(RESOURCES[r]);
+                    if (count == counts[r]) {
+                        continue;
+                    }
+                    if (changed) {
+                        out.append(',');
+                    } else {
+                        startCell(out, cellCount++, index);
+                        out.append(',');
+                        JsonWriter.key(out, "resources");
+                        out.append('{');
+                        changed = true;
+                    }
+                    JsonWriter.key(out, RESOURCES[r].name());
+                    JsonWriter.number(out, count);
+                    counts[r] = count;
+                }
+                if (changed) {
+                    out.append('}');
+                }
+                if (view.active[index] != active) {
+                    if (!changed) {
+                        startCell(out, cellCount++, index);
+                        changed = true;
+                    }
+                    out.append(',');
+                    JsonWriter.key(out, "inactive");
+                    JsonWriter.bool(out, !active);
+                    view.active[index] = active;
+                }
+                if (changed) {
+                    out.append('}');
+                }
+            }
+            out.append("]}");
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return new GridPatch(view, full || cellCount > 0 ? out.toString() : null);
+    }
+
+    /**
+     * Opens the JSON object of a cell and writes its coordinates.
+     */
+    private static void startCell(final Appendable out, final int written, final int index) throws IOException {
+        if (written > 0) {
+            out.append(',');
+        }
+        final GridPosition position = GridPosition.fromIndex(index);
+        out.append('{');
+        JsonWriter.key(out, "x");
+        JsonWriter.number(out, position.getX());
+        out.append(',');
+        JsonWriter.key(out, "y");
+        JsonWriter.number(out, position.getY());
+    }
+
+    /**
+     * Returns the state of a component if it differs from the last one sent
+     * to the player under the same key, and remembers it as sent.
+     *
+     * @param playerId the identifier of the player
+     * @param key      name of the component, such as {@code "scoring"}
+     * @param state    current state of the component
+     * @return the state, or empty if it was already sent
+     */
+    public Optional<String> componentPatch(final int playerId, final String key, final String state) {
+        Objects.requireNonNull(key, "key cannot be null");
+        Objects.requireNonNull(state, "state cannot be null");
+        final PlayerView view = views.computeIfAbsent(playerId, id -> new PlayerView());
+        if (state.equals(view.components.put(key, state))) {
+            return Optional.empty();
+        }
+        return Optional.of(state);
+    }
+
+    /**
+     * Forgets everything sent to the player, so the next patches are complete.
+     * Used when an observer reconnects.
+     *
+     * @param playerId the identifier of the player
+     */
+    public void reset(final int playerId) {
+        views.remove(playerId);
+    }
+
+    /**
+     * Forgets one grid sent to the player, so its next patch is complete.
+     * Used when the player stops observing the grid.
+     *
+     * @param playerId the identifier of the player
+     * @param gridKey  name of the grid, as passed to {@link #gridPatch}
+     */
+    public void reset(final int playerId, final String gridKey) {
+        final PlayerView view = views.get(playerId);
+        if (view != null) {
+            view.grids.remove(gridKey);
+        }
+    }
+
+    /**
+     * What was last sent to one player.
+     */
+    private static final class PlayerView {
+        private final Map<String, GridView> grids = new HashMap<>();
+        private final Map<String, String> components = new HashMap<>();
+    }
+
+    /**
+     * What was last sent to one player about one grid.
+     */
+    private static final class GridView {
+        private final Card[] cards = new Card[GridPosition.CELL_COUNT];
+        private final int[][] counts = new int[GridPosition.CELL_COUNT][RESOURCES.length];
+        private final boolean[] active = new boolean[GridPosition.CELL_COUNT];
+
+        GridView copy() {
+            final GridView copy = new GridView();
+            System.arraycopy(cards, 0, copy.cards, 0, cards.length);
+            for (int i = 0; i < counts.length; i++) {
+                System.arraycopy(counts[i], 0, copy.counts[i], 0, RESOURCES.length);
+            }
+            System.arraycopy(active, 0, copy.active, 0, active.length);
+            return copy;
+        }
+    }
+
+    /**
+     * Result of diffing a grid: the view to remember and the patch, {@code null} if nothing changed.
+     */
+    private record GridPatch(GridView view, String json) {
+    }
+}
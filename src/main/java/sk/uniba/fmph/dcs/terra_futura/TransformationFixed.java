@@ -7,11 +7,13 @@ import java.util.Objects;
  * Fixed transformation effect:
  * a specific list of input resources is exchanged for a specific list
  * of output resources and a fixed amount of pollution.
+ * Input and output are compared as multisets.
  */
 public final class TransformationFixed implements Effect {
     private final List<Resource> from;
     private final List<Resource> to;
     private final int pollution;
+    private final CompiledEffect compiled;
 
     /**
      * Creates a fixed transformation effect.
@@ -24,15 +26,17 @@ public final class TransformationFixed implements Effect {
         this.from = List.copyOf(Objects.requireNonNull(from, "Input cannot be null"));
         this.to = List.copyOf(Objects.requireNonNull(to, "Output cannot be null"));
         this.pollution = pollution;
+        this.compiled = CompiledEffect.fixed(this.from, this.to, pollution);
     }
 
     @Override
     public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
-        if (input == null || output == null) {
-            return false;
-        }
+        return compiled.check(input, output, pollution);
+    }
 
-        return input.equals(from) && output.equals(to) && this.pollution == pollution;
+    @Override
+    public CompiledEffect compile() {
+        return compiled;
     }
 
     @Override
@@ -44,4 +48,25 @@ public final class TransformationFixed implements Effect {
     public String state() {
         return String.format("TransformationFixed{from=%s, to=%s, pollution=%d}", from, to, pollution);
     }
+
+    /**
+     * @return resources paid as input
+     */
+    List<Resource> getFrom() {
+        return from;
+    }
+
+    /**
+     * @return resources gained as output
+     */
+    List<Resource> getTo() {
+        return to;
+    }
+
+    /**
+     * @return pollution produced by this effect
+     */
+    int getPollution() {
+        return pollution;
+    }
 }
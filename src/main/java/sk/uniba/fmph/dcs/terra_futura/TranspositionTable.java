@@ -0,0 +1,86 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.OptionalInt;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free cache of evaluated scores keyed by {@link Grid#getZobristHash()}.
+ * <p>
+ * The table has a fixed number of slots, a power of two, and a new entry
+ * simply replaces whatever occupied its slot. Each slot is two longs: the entry
+ * and the hash XOR-ed with the entry. A reader accepts the entry only if the
+ * two words still match, so a slot torn by concurrent writers reads as a miss
+ * instead of a wrong score, and no locks are needed.
+ */
+public final class TranspositionTable {
+    private static final long PRESENT = 1L;
+    private static final int SCORE_SHIFT = 32;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * Creates a table.
+     *
+     * @param capacity minimum number of entries; rounded up to a power of two
+     * @throws IllegalArgumentException if the capacity is not positive or too large
+     */
+    public TranspositionTable(final int capacity) {
+        if (capacity < 1 || capacity > 1 << 29) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^29");
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicLongArray(2 * size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Stores a score, replacing the entry previously held by the slot.
+     *
+     * @param hash  hash of the position
+     * @param score evaluated score
+     */
+    public void put(final long hash, final int score) {
+        final long entry = (long) score << SCORE_SHIFT | PRESENT;
+        final int slot = slot(hash);
+        slots.setRelease(slot, hash ^ entry);
+        slots.setRelease(slot + 1, entry);
+    }
+
+    /**
+     * Looks up a score.
+     *
+     * @param hash hash of the position
+     * @return the stored score, or empty if the position is not in the table
+     */
+    public OptionalInt get(final long hash) {
+        final int slot = slot(hash);
+        final long entry = slots.getAcquire(slot + 1);
+        final long check = slots.getAcquire(slot);
+        if ((entry & PRESENT) == 0 || (check ^ entry) != hash) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of((int) (entry >> SCORE_SHIFT));
+    }
+
+    /**
+     * @return number of entries the table can hold
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Removes all entries. Not atomic with respect to concurrent writers.
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.setRelease(i, 0L);
+        }
+    }
+
+    private int slot(final long hash) {
+        // high bits are better mixed than low ones after XOR-ing cell keys
+        return (int) ((hash ^ (hash >>> SCORE_SHIFT)) & mask) << 1;
+    }
+}
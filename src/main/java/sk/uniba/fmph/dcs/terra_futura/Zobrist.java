@@ -0,0 +1,55 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keys of the Zobrist hashes maintained by {@link Card} and {@link Grid}.
+ * <p>
+ * Keys are derived on demand with the SplitMix64 finalizer instead of being
+ * looked up in tables, because resource counts are unbounded. The key of a
+ * resource type with count 0 is 0, so an empty card hashes to its identity key.
+ */
+final class Zobrist {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final long RESOURCE_SALT = 0x5DEECE66DL;
+    private static final long CELL_SALT = 0xD1B54A32D192ED03L;
+    private static final AtomicLong CARD_SEQUENCE = new AtomicLong();
+
+    private Zobrist() {
+    }
+
+    /**
+     * @return identity key of a new card; copies of a card keep its key
+     */
+    static long nextCardKey() {
+        return mix(CARD_SEQUENCE.incrementAndGet() * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param resource resource ordinal
+     * @param count    number of resources of that type on a card
+     * @return key of the (resource, count) pair
+     */
+    static long resourceKey(final int resource, final int count) {
+        if (count == 0) {
+            return 0L;
+        }
+        return mix(RESOURCE_SALT + ((long) count << 8 | resource) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param cell     cell index, see {@link GridPosition#getIndex()}
+     * @param cardHash hash of the card in the cell
+     * @return contribution of the cell to the grid hash
+     */
+    static long cellKey(final int cell, final long cardHash) {
+        return mix(cardHash + (cell + 1) * CELL_SALT);
+    }
+
+    private static long mix(final long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
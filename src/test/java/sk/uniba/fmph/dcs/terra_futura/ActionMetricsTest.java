@@ -0,0 +1,155 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ActionMetrics and LatencyHistogram.
+ */
+public class ActionMetricsTest {
+
+    private static final GridPosition ORIGIN = GridPosition.of(0, 0);
+
+    private static Card greenToCar() {
+        return new Card(List.of(Resource.GREEN),
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.CAR), 0), null, 1);
+    }
+
+    /**
+     * Activations are counted as succeeded or broken down by rejection reason.
+     */
+    @Test
+    public void activationsAreBrokenDownByReason() {
+        ActionMetrics metrics = new ActionMetrics();
+        ProcessAction action = new ProcessAction(new CardTransactionExecutor(metrics), null, metrics);
+        Grid grid = new Grid();
+        Card card = greenToCar();
+        grid.putCard(ORIGIN, card);
+        List<Pair<Resource, GridPosition>> inputs = List.of(Pair.of(Resource.GREEN, ORIGIN));
+        List<Pair<Resource, GridPosition>> outputs = List.of(Pair.of(Resource.CAR, ORIGIN));
+
+        assertTrue(action.activateCard(card, grid, inputs, outputs, List.of()));
+        assertFalse(action.activateCard(card, grid, inputs, outputs, List.of()));
+        assertFalse(action.activateCard(card, grid, inputs, List.of(), List.of()));
+        assertFalse(action.activateCard(null, grid, inputs, outputs, List.of()));
+
+        ActionStats activation = metrics.getStats(ActionType.ACTIVATION);
+        assertEquals(1, activation.succeeded());
+        assertEquals(Map.of(
+                RejectionReason.INSUFFICIENT_RESOURCES, 1L,
+                RejectionReason.EFFECT_MISMATCH, 1L,
+                RejectionReason.INVALID_ARGUMENT, 1L), activation.rejected());
+        assertEquals(3, activation.totalRejected());
+        assertTrue(activation.p50Nanos() <= activation.p99Nanos());
+        assertTrue(activation.p99Nanos() <= activation.maxNanos());
+
+        // only the two activations approved by the effect reached the executor
+        ActionStats transaction = metrics.getStats(ActionType.TRANSACTION);
+        assertEquals(1, transaction.succeeded());
+        assertEquals(Map.of(RejectionReason.INSUFFICIENT_RESOURCES, 1L), transaction.rejected());
+    }
+
+    /**
+     * Batches are counted once, on the ProcessAction's registry, including those
+     * rejected by an effect check before they reach the executor.
+     */
+    @Test
+    public void batchesAreCountedWithEffectRejections() {
+        ActionMetrics metrics = new ActionMetrics();
+        ProcessAction action = new ProcessAction(new CardTransactionExecutor(metrics), null, metrics);
+        Grid grid = new Grid();
+        Card card = greenToCar();
+        grid.putCard(ORIGIN, card);
+        CardTransaction valid = new CardTransaction(
+                List.of(Pair.of(Resource.GREEN, ORIGIN)), List.of(Pair.of(Resource.CAR, ORIGIN)), List.of());
+        CardTransaction mismatched = new CardTransaction(List.of(Pair.of(Resource.GREEN, ORIGIN)), List.of(), List.of());
+
+        assertFalse(action.activateCards(grid, List.of(Pair.of(card, mismatched))));
+        assertTrue(action.activateCards(grid, List.of(Pair.of(card, valid))));
+        assertFalse(action.activateCards(grid, List.of(Pair.of(card, valid))));
+
+        ActionStats batch = metrics.getStats(ActionType.BATCH);
+        assertEquals(1, batch.succeeded());
+        assertEquals(Map.of(
+                RejectionReason.EFFECT_MISMATCH, 1L,
+                RejectionReason.INSUFFICIENT_RESOURCES, 1L), batch.rejected());
+    }
+
+    /**
+     * Moves report occupied positions and missing pile cards.
+     */
+    @Test
+    public void movesReportOccupiedPositionAndMissingCard() {
+        ActionMetrics metrics = new ActionMetrics();
+        Pile pile = new Pile(List.of(greenToCar()), List.of());
+        Grid grid = new Grid();
+
+        assertTrue(new MoveCard(1, null, metrics).moveCard(pile, ORIGIN, grid));
+        assertFalse(new MoveCard(1, null, metrics).moveCard(pile, ORIGIN, grid));
+        assertFalse(new MoveCard(1, null, metrics).moveCard(pile, GridPosition.of(1, 0), grid));
+
+        ActionStats stats = metrics.getStats(ActionType.MOVE_CARD);
+        assertEquals(1, stats.succeeded());
+        assertEquals(Map.of(
+                RejectionReason.POSITION_OCCUPIED, 1L,
+                RejectionReason.MISSING_CARD, 1L), stats.rejected());
+    }
+
+    /**
+     * The disabled registry ignores reports and never reads the clock.
+     */
+    @Test
+    public void disabledRegistryRecordsNothing() {
+        ActionMetrics metrics = ActionMetrics.disabled();
+        assertFalse(metrics.isEnabled());
+        assertEquals(0, metrics.start());
+
+        metrics.record(ActionType.TRANSACTION, null, 0);
+        metrics.record(ActionType.TRANSACTION, RejectionReason.MISSING_CARD, 0);
+
+        ActionStats stats = metrics.getStats(ActionType.TRANSACTION);
+        assertEquals(0, stats.succeeded());
+        assertTrue(stats.rejected().isEmpty());
+        assertEquals(ActionType.values().length, metrics.getStats().size());
+    }
+
+    /**
+     * Percentiles are accurate to one sub-bucket and never exceed the maximum.
+     */
+    @Test
+    public void histogramPercentilesAreBucketAccurate() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        long median = histogram.getPercentile(50);
+        assertTrue(median >= 500_000 && median <= 500_000 * 1.125);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 990_000 && p99 <= 1_000_000);
+        assertEquals(1_000_000, histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+
+    /**
+     * Every value lies within the bounds of its bucket.
+     */
+    @Test
+    public void bucketsCoverTheirValues() {
+        for (long value : new long[]{0, 1, 7, 8, 9, 15, 16, 100, 12345, 1L << 40, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for the CachingEffect class.
+ */
+public class CachingEffectTest {
+
+    /**
+     * Effect that cannot be compiled and counts how often it is checked.
+     */
+    private static final class CountingEffect implements Effect {
+        private int checks;
+
+        @Override
+        public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
+            checks++;
+            return input.size() == 2 && output.contains(Resource.CAR);
+        }
+
+        @Override
+        public boolean hasAssistance() {
+            return true;
+        }
+
+        @Override
+        public String state() {
+            return "Counting";
+        }
+    }
+
+    /**
+     * Repeated checks with the same multisets are answered from the cache.
+     */
+    @Test
+    public void repeatedChecksHitTheCache() {
+        CountingEffect counting = new CountingEffect();
+        CachingEffect cached = new CachingEffect(counting, 64);
+
+        assertTrue(cached.check(List.of(Resource.GREEN, Resource.RED), List.of(Resource.CAR), 0));
+        assertTrue(cached.check(List.of(Resource.RED, Resource.GREEN), List.of(Resource.CAR), 0));
+        assertFalse(cached.check(List.of(Resource.RED), List.of(Resource.CAR), 0));
+        assertFalse(cached.check(List.of(Resource.RED), List.of(Resource.CAR), 0));
+        // different pollution is a different key
+        assertTrue(cached.check(List.of(Resource.GREEN, Resource.RED), List.of(Resource.CAR), 1));
+
+        assertEquals(3, counting.checks);
+        assertEquals(2, cached.getHits());
+        assertEquals(3, cached.getMisses());
+        assertTrue(cached.hasAssistance());
+        assertEquals("Counting", cached.state());
+    }
+
+    /**
+     * A full cache evicts entries but keeps returning correct results.
+     */
+    @Test
+    public void evictionKeepsResultsCorrect() {
+        EffectOr or = new EffectOr(List.of(
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 0),
+                new ArbitraryBasic(2, List.of(Resource.CAR), 1)));
+        CachingEffect cached = new CachingEffect(or, 4);
+        assertEquals(4, cached.capacity());
+        assertSame(or.compile(), cached.compile());
+
+        Resource[] resources = Resource.values();
+        for (int round = 0; round < 3; round++) {
+            for (Resource a : resources) {
+                for (Resource b : resources) {
+                    List<Resource> input = List.of(a, b);
+                    assertEquals(or.check(input, List.of(Resource.CAR), 1), cached.check(input, List.of(Resource.CAR), 1));
+                    assertEquals(or.check(List.of(a), List.of(Resource.BULB), 0), cached.check(List.of(a), List.of(Resource.BULB), 0));
+                }
+            }
+        }
+        assertTrue(cached.getMisses() > 0);
+    }
+
+    /**
+     * Cards with an effect that cannot be compiled go through the cache.
+     */
+    @Test
+    public void cardsUseTheCacheForOpaqueEffects() {
+        CachingEffect cached = new CachingEffect(new CountingEffect(), 16);
+        Card card = new Card(cached, null, 1);
+
+        assertTrue(card.check(List.of(Resource.GREEN, Resource.GREEN), List.of(Resource.CAR), 0));
+        assertTrue(card.check(List.of(Resource.GREEN, Resource.GREEN), List.of(Resource.CAR), 0));
+        assertEquals(1, cached.getHits());
+    }
+}
@@ -76,6 +76,43 @@ public class CardTest {
         assertFalse(card.canGetResources(Collections.singletonList(Resource.RED)));
     }
 
+    /**
+     * Count-vector variants follow the same multiset rules as the list-based ones.
+     */
+    @Test
+    public void countVectorGetAndPutResources() {
+        Card card = new Card(Arrays.asList(Resource.GREEN, Resource.GREEN, Resource.RED), null, null, 1);
+
+        int[] twoGreen = new int[Resource.values().length];
+        twoGreen[Resource.GREEN.ordinal()] = 2;
+        assertTrue(card.canGetResources(twoGreen));
+        card.getResources(twoGreen);
+        assertEquals(0, card.getResourceCount(Resource.GREEN));
+        assertFalse(card.canGetResources(twoGreen));
+
+        // an empty request is not a valid payment
+        assertFalse(card.canGetResources(new int[Resource.values().length]));
+
+        int[] bulb = new int[Resource.values().length];
+        bulb[Resource.BULB.ordinal()] = 1;
+        card.putResources(bulb);
+        assertEquals(Arrays.asList(Resource.RED, Resource.BULB), card.getResources());
+    }
+
+    /**
+     * A failed multiset check must not change the stored resources.
+     */
+    @Test
+    public void failedCanGetResourcesKeepsResources() {
+        Card card = new Card(Arrays.asList(Resource.GREEN, Resource.RED), null, null, 1);
+
+        assertFalse(card.canGetResources(Arrays.asList(Resource.GREEN, Resource.RED, Resource.RED)));
+        assertFalse(card.canGetResources(Arrays.asList(Resource.GREEN, null)));
+
+        assertEquals(1, card.getResourceCount(Resource.GREEN));
+        assertEquals(1, card.getResourceCount(Resource.RED));
+    }
+
     /**
      * canPutResources blocks any new resources once the card becomes inactive.
      */
@@ -144,4 +181,39 @@ public class CardTest {
         assertTrue(state.contains("pollutionSpaces"));
         assertTrue(state.contains("Upper"));
     }
+
+    /**
+     * A copy starts with the same resources, and later changes stay on one side.
+     */
+    @Test
+    public void copyIsIndependentAfterWrites() {
+        Card card = new Card(Arrays.asList(Resource.GREEN, Resource.RED), null, null, 1);
+        Card copy = card.copy();
+
+        copy.getResources(Collections.singletonList(Resource.GREEN));
+        card.putResources(Collections.singletonList(Resource.CAR));
+
+        assertEquals(1, card.getResourceCount(Resource.GREEN));
+        assertEquals(0, copy.getResourceCount(Resource.GREEN));
+        assertEquals(1, card.getResourceCount(Resource.CAR));
+        assertEquals(0, copy.getResourceCount(Resource.CAR));
+        assertEquals(1, copy.getResourceCount(Resource.RED));
+    }
+
+    /**
+     * state() is rebuilt only after the resources change.
+     */
+    @Test
+    public void stateIsCachedPerModCount() {
+        Card card = new Card(Collections.singletonList(Resource.GREEN), null, null, 0);
+        String state = card.state();
+        assertSame(state, card.state());
+
+        card.putResources(Collections.singletonList(Resource.POLLUTION));
+        assertEquals(1, card.getModCount());
+        String polluted = card.state();
+        assertNotEquals(state, polluted);
+        assertTrue(polluted.contains("\"inactive\":true"));
+        assertSame(polluted, card.copy().state());
+    }
 }
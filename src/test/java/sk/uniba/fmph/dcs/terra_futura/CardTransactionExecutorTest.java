@@ -0,0 +1,240 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CardTransactionExecutor class.
+ * Every scenario is run against both the default and the allocation-free executor.
+ */
+public class CardTransactionExecutorTest {
+    private static final GridPosition SOURCE = GridPosition.of(0, 0);
+    private static final GridPosition TARGET = GridPosition.of(1, 0);
+
+    private static List<CardTransactionExecutor> executors() {
+        return Arrays.asList(new CardTransactionExecutor(), CardTransactionExecutor.allocationFree());
+    }
+
+    // Helper method that creates a grid with a source and a target card
+    private static Grid grid() {
+        Grid grid = new Grid();
+        grid.putCard(SOURCE, new Card(Arrays.asList(Resource.GREEN, Resource.GREEN, Resource.RED), null, null, 1));
+        grid.putCard(TARGET, new Card(null, null, 0));
+        return grid;
+    }
+
+    /**
+     * A valid transaction moves resources and places pollution.
+     */
+    @Test
+    public void executeAppliesValidTransaction() {
+        for (CardTransactionExecutor executor : executors()) {
+            Grid grid = grid();
+
+            boolean result = executor.execute(grid,
+                    Arrays.asList(Pair.of(Resource.GREEN, SOURCE), Pair.of(Resource.GREEN, SOURCE)),
+                    Collections.singletonList(Pair.of(Resource.BULB, TARGET)),
+                    Collections.singletonList(SOURCE));
+
+            assertTrue(result);
+            Card source = grid.getCard(SOURCE).orElseThrow();
+            Card target = grid.getCard(TARGET).orElseThrow();
+            assertEquals(Arrays.asList(Resource.RED, Resource.POLLUTION), source.getResources());
+            assertEquals(Collections.singletonList(Resource.BULB), target.getResources());
+        }
+    }
+
+    /**
+     * Insufficient resources reject the whole transaction without changes.
+     */
+    @Test
+    public void executeRejectsInsufficientResources() {
+        for (CardTransactionExecutor executor : executors()) {
+            Grid grid = grid();
+
+            boolean result = executor.execute(grid,
+                    Arrays.asList(Pair.of(Resource.RED, SOURCE), Pair.of(Resource.RED, SOURCE)),
+                    Collections.singletonList(Pair.of(Resource.BULB, TARGET)),
+                    Collections.emptyList());
+
+            assertFalse(result);
+            assertEquals(Arrays.asList(Resource.GREEN, Resource.GREEN, Resource.RED), grid.getCard(SOURCE).orElseThrow().getResources());
+            assertTrue(grid.getCard(TARGET).orElseThrow().getResources().isEmpty());
+        }
+    }
+
+    /**
+     * Transactions touching empty cells or inactive cards are rejected.
+     */
+    @Test
+    public void executeRejectsMissingAndInactiveCards() {
+        for (CardTransactionExecutor executor : executors()) {
+            Grid grid = grid();
+
+            assertFalse(executor.execute(grid, Collections.emptyList(),
+                    Collections.singletonList(Pair.of(Resource.GREEN, GridPosition.of(2, 2))), Collections.emptyList()));
+
+            // the target card has no safe pollution space, one pollution makes it inactive
+            assertTrue(executor.execute(grid, Collections.emptyList(), Collections.emptyList(), Collections.singletonList(TARGET)));
+            assertFalse(executor.execute(grid, Collections.emptyList(),
+                    Collections.singletonList(Pair.of(Resource.GREEN, TARGET)), Collections.emptyList()));
+        }
+    }
+
+    /**
+     * A rejected transaction must not leak into the next one through the scratch buffer.
+     */
+    @Test
+    public void allocationFreeExecutorResetsAfterRejection() {
+        CardTransactionExecutor executor = CardTransactionExecutor.allocationFree();
+        Grid grid = grid();
+
+        assertFalse(executor.execute(grid,
+                Arrays.asList(Pair.of(Resource.GREEN, SOURCE), Pair.of(Resource.BULB, SOURCE)),
+                Collections.emptyList(), Collections.emptyList()));
+        assertTrue(executor.execute(grid,
+                Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                Collections.emptyList(), Collections.emptyList()));
+
+        assertEquals(Arrays.asList(Resource.GREEN, Resource.RED), grid.getCard(SOURCE).orElseThrow().getResources());
+    }
+
+    /**
+     * A batch validates each transaction against the counts left by the previous ones.
+     */
+    @Test
+    public void executeBatchChainsTransactions() {
+        for (CardTransactionExecutor executor : executors()) {
+            Grid grid = grid();
+            int[] events = new int[1];
+            grid.addListener((position, card) -> events[0]++);
+
+            // the second transaction pays with the bulb produced by the first
+            boolean result = executor.executeBatch(grid, Arrays.asList(
+                    new CardTransaction(
+                            Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                            Collections.singletonList(Pair.of(Resource.BULB, TARGET)),
+                            Collections.emptyList()),
+                    new CardTransaction(
+                            Collections.singletonList(Pair.of(Resource.BULB, TARGET)),
+                            Collections.singletonList(Pair.of(Resource.CAR, SOURCE)),
+                            Collections.singletonList(SOURCE))));
+
+            assertTrue(result);
+            assertEquals(Arrays.asList(Resource.GREEN, Resource.RED, Resource.CAR, Resource.POLLUTION),
+                    grid.getCard(SOURCE).orElseThrow().getResources());
+            assertTrue(grid.getCard(TARGET).orElseThrow().getResources().isEmpty());
+            // one change per card whose resources changed; the target's bulb came and went
+            assertEquals(1, events[0]);
+        }
+    }
+
+    /**
+     * If any transaction of a batch is invalid, none is applied.
+     */
+    @Test
+    public void executeBatchIsAllOrNothing() {
+        for (CardTransactionExecutor executor : executors()) {
+            Grid grid = grid();
+            String before = grid.state();
+
+            // the first transaction makes the target inactive, so the second cannot use it
+            assertFalse(executor.executeBatch(grid, Arrays.asList(
+                    new CardTransaction(
+                            Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                            Collections.emptyList(),
+                            Collections.singletonList(TARGET)),
+                    new CardTransaction(
+                            Collections.emptyList(),
+                            Collections.singletonList(Pair.of(Resource.BULB, TARGET)),
+                            Collections.emptyList()))));
+            assertEquals(before, grid.state());
+
+            CardTransaction withNull = new CardTransaction(
+                    Arrays.asList(Pair.of(Resource.GREEN, SOURCE), null), Collections.emptyList(), Collections.emptyList());
+            assertFalse(executor.executeBatch(grid, Collections.singletonList(withNull)));
+
+            // three greens in total, but the source holds only two
+            CardTransaction payTwoGreens = new CardTransaction(
+                    Arrays.asList(Pair.of(Resource.GREEN, SOURCE), Pair.of(Resource.GREEN, SOURCE)),
+                    Collections.emptyList(), Collections.emptyList());
+            CardTransaction payOneGreen = new CardTransaction(
+                    Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                    Collections.emptyList(), Collections.emptyList());
+            assertFalse(executor.executeBatch(grid, Arrays.asList(payTwoGreens, payOneGreen)));
+            assertEquals(before, grid.state());
+
+            // scratch buffers are clean after the rejections
+            assertTrue(executor.executeBatch(grid, Collections.singletonList(payTwoGreens)));
+            assertEquals(Collections.singletonList(Resource.RED), grid.getCard(SOURCE).orElseThrow().getResources());
+        }
+    }
+
+    /**
+     * Rolling back to a mark restores the grid, including its hash, and keeps earlier changes.
+     */
+    @Test
+    public void rollbackRestoresGridToMark() {
+        CardTransactionExecutor executor = CardTransactionExecutor.withUndoLog();
+        Grid grid = grid();
+
+        assertTrue(executor.execute(grid, Collections.singletonList(Pair.of(Resource.RED, SOURCE)),
+                Collections.singletonList(Pair.of(Resource.BULB, TARGET)), Collections.emptyList()));
+        String afterFirst = grid.state();
+        long hashAfterFirst = grid.getZobristHash();
+
+        int mark = executor.mark();
+        assertTrue(executor.execute(grid, Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                Collections.emptyList(), Collections.singletonList(TARGET)));
+        assertFalse(grid.getCard(TARGET).orElseThrow().isActive());
+        assertTrue(executor.executeBatch(grid, Collections.singletonList(new CardTransaction(
+                Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                Collections.singletonList(Pair.of(Resource.CAR, SOURCE)), Collections.emptyList()))));
+        // rejected transactions are not logged
+        assertFalse(executor.execute(grid, Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                Collections.emptyList(), Collections.emptyList()));
+
+        executor.rollbackTo(mark);
+        assertEquals(afterFirst, grid.state());
+        assertEquals(hashAfterFirst, grid.getZobristHash());
+        assertTrue(grid.getCard(TARGET).orElseThrow().isActive());
+
+        executor.rollbackTo(0);
+        assertEquals(grid().state(), grid.state());
+        assertEquals(0, executor.mark());
+    }
+
+    /**
+     * Only executors created with an undo log can be marked.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void markRequiresUndoLog() {
+        CardTransactionExecutor executor = new CardTransactionExecutor();
+        assertFalse(executor.hasUndoLog());
+        executor.mark();
+    }
+
+    /**
+     * Clearing the log keeps the changes; marks beyond the log are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rollbackRejectsMarkBeyondLog() {
+        CardTransactionExecutor executor = CardTransactionExecutor.withUndoLog();
+        Grid grid = grid();
+        assertTrue(executor.execute(grid, Collections.singletonList(Pair.of(Resource.RED, SOURCE)),
+                Collections.emptyList(), Collections.emptyList()));
+        int mark = executor.mark();
+
+        executor.clearUndoLog();
+        assertEquals(0, executor.mark());
+        assertEquals(Arrays.asList(Resource.GREEN, Resource.GREEN), grid.getCard(SOURCE).orElseThrow().getResources());
+
+        executor.rollbackTo(mark);
+    }
+}
@@ -0,0 +1,81 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CompiledEffect class.
+ */
+public class CompiledEffectTest {
+
+    /**
+     * Lists that are equal as multisets share a signature.
+     */
+    @Test
+    public void signatureIgnoresOrder() {
+        long a = CompiledEffect.signature(List.of(Resource.GREEN, Resource.RED, Resource.GREEN));
+        long b = CompiledEffect.signature(List.of(Resource.GREEN, Resource.GREEN, Resource.RED));
+
+        assertEquals(a, b);
+        assertEquals(2, CompiledEffect.count(a, Resource.GREEN));
+        assertEquals(1, CompiledEffect.count(a, Resource.RED));
+        assertNotEquals(a, CompiledEffect.signature(List.of(Resource.GREEN, Resource.RED)));
+    }
+
+    /**
+     * Lists containing null cannot be packed.
+     */
+    @Test
+    public void signatureRejectsNull() {
+        assertEquals(CompiledEffect.INVALID_SIGNATURE, CompiledEffect.signature(Arrays.asList(Resource.GREEN, null)));
+    }
+
+    /**
+     * TransformationFixed compares input and output as multisets.
+     */
+    @Test
+    public void transformationFixedIsOrderIndependent() {
+        Effect effect = new TransformationFixed(List.of(Resource.GREEN, Resource.RED), List.of(Resource.BULB), 1);
+
+        assertTrue(effect.check(List.of(Resource.RED, Resource.GREEN), List.of(Resource.BULB), 1));
+        assertFalse(effect.check(List.of(Resource.RED, Resource.RED), List.of(Resource.BULB), 1));
+        assertFalse(effect.check(List.of(Resource.RED, Resource.GREEN), List.of(Resource.BULB), 0));
+    }
+
+    /**
+     * Nested OR trees are flattened; opaque effects are still consulted.
+     */
+    @Test
+    public void nestedOrWithOpaqueEffect() {
+        Effect opaque = new Effect() {
+            @Override
+            public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
+                return pollution == 3;
+            }
+
+            @Override
+            public boolean hasAssistance() {
+                return false;
+            }
+
+            @Override
+            public String state() {
+                return "Opaque";
+            }
+        };
+        Effect inner = new EffectOr(List.of(new ArbitraryBasic(2, List.of(Resource.CAR), 0), opaque));
+        Effect outer = new EffectOr(List.of(new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.MONEY), 0), inner));
+        CompiledEffect compiled = outer.compile();
+
+        assertFalse(compiled.isExact());
+        assertTrue(compiled.check(List.of(Resource.GREEN), List.of(Resource.MONEY), 0));
+        assertTrue(compiled.check(List.of(Resource.YELLOW, Resource.BULB), List.of(Resource.CAR), 0));
+        assertTrue(compiled.check(Collections.emptyList(), Collections.emptyList(), 3));
+        assertFalse(compiled.check(List.of(Resource.YELLOW), List.of(Resource.CAR), 0));
+    }
+}
@@ -0,0 +1,218 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress tests of a concurrent Grid read by several threads while one thread writes it.
+ */
+public class ConcurrentGridTest {
+    private static final GridPosition LEFT = GridPosition.of(0, 0);
+    private static final GridPosition RIGHT = GridPosition.of(1, 0);
+    private static final int GREENS = 6;
+    private static final int WRITES = 20_000;
+    private static final int READERS = 3;
+
+    // Helper method that creates a concurrent grid holding all greens on the left card
+    private static Grid grid() {
+        Grid grid = Grid.concurrent();
+        grid.putCard(LEFT, new Card(Collections.nCopies(GREENS, Resource.GREEN), null, null, 0));
+        grid.putCard(RIGHT, new Card(null, null, 0));
+        return grid;
+    }
+
+    private static int greens(final Grid grid) {
+        return grid.getCardAt(LEFT.getIndex()).getResourceCount(Resource.GREEN)
+                + grid.getCardAt(RIGHT.getIndex()).getResourceCount(Resource.GREEN);
+    }
+
+    private static int greensInState(final String state) {
+        int total = 0;
+        JSONArray cells = new JSONObject(state).getJSONArray("cards");
+        for (int i = 0; i < cells.length(); i++) {
+            for (Object resource : cells.getJSONObject(i).getJSONObject("card").getJSONArray("resources")) {
+                if (Resource.GREEN.name().equals(resource)) {
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Readers never see a transaction half applied: greens moved between the
+     * two cards always add up to the same total, in read() as well as in state()
+     * and writeSnapshot().
+     */
+    @Test
+    public void readersNeverSeeTornCounts() throws Exception {
+        Grid grid = grid();
+        CardTransactionExecutor executor = CardTransactionExecutor.allocationFree();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(READERS);
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            final int mode = i;
+            readers.add(Thread.ofPlatform().start(() -> {
+                ByteBuffer buffer = ByteBuffer.allocate(1024);
+                started.countDown();
+                while (!done.get()) {
+                    int seen;
+                    if (mode == 0) {
+                        seen = greensInState(grid.state());
+                    } else if (mode == 1) {
+                        buffer.clear();
+                        grid.writeSnapshot(buffer);
+                        seen = greens(Grid.readSnapshot(buffer.flip()));
+                    } else {
+                        seen = grid.read(ConcurrentGridTest::greens);
+                    }
+                    if (seen != GREENS) {
+                        torn.compareAndSet(null, "saw " + seen + " greens");
+                    }
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < WRITES; i++) {
+            moveGreens(grid, executor, i);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join(TimeUnit.SECONDS.toMillis(10));
+        }
+
+        assertNull(torn.get());
+        assertTrue(reads.get() > 0);
+        assertEquals(GREENS, grid.read(ConcurrentGridTest::greens).intValue());
+    }
+
+    // Helper method that moves one to three greens between the cards, alternating single and batch transactions
+    private static void moveGreens(final Grid grid, final CardTransactionExecutor executor, final int i) {
+        int count = 1 + i % 3;
+        // with six greens on two cards, one of them always holds at least three
+        GridPosition from = grid.getCard(LEFT).orElseThrow().getResourceCount(Resource.GREEN) >= count ? LEFT : RIGHT;
+        GridPosition to = from == LEFT ? RIGHT : LEFT;
+        List<Pair<Resource, GridPosition>> inputs = Collections.nCopies(count, Pair.of(Resource.GREEN, from));
+        List<Pair<Resource, GridPosition>> outputs = Collections.nCopies(count, Pair.of(Resource.GREEN, to));
+        if (i % 2 == 0) {
+            assertTrue(executor.execute(grid, inputs, outputs, Collections.emptyList()));
+        } else {
+            assertTrue(executor.executeBatch(grid, List.of(new CardTransaction(inputs, outputs, Collections.emptyList()))));
+        }
+    }
+
+    /**
+     * Branches forked by other threads keep the counts they were forked with
+     * while the game thread goes on changing the grid.
+     */
+    @Test
+    public void forksAreNotChangedByLaterWrites() throws Exception {
+        Grid grid = grid();
+        CardTransactionExecutor executor = CardTransactionExecutor.allocationFree();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+        AtomicLong forks = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(1);
+
+        Thread reader = Thread.ofPlatform().start(() -> {
+            started.countDown();
+            while (!done.get()) {
+                Grid branch = grid.fork();
+                int left = branch.getCardAt(LEFT.getIndex()).getResourceCount(Resource.GREEN);
+                if (greens(branch) != GREENS) {
+                    torn.compareAndSet(null, "forked " + greens(branch) + " greens");
+                }
+                // give the game thread time to write the cells the branch shares
+                for (int i = 0; i < 1_000; i++) {
+                    Thread.onSpinWait();
+                }
+                if (branch.getCardAt(LEFT.getIndex()).getResourceCount(Resource.GREEN) != left || greens(branch) != GREENS) {
+                    torn.compareAndSet(null, "fork changed after it was made");
+                }
+                forks.incrementAndGet();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < WRITES; i++) {
+            moveGreens(grid, executor, i);
+        }
+        done.set(true);
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertNull(torn.get());
+        assertTrue(forks.get() > 0);
+    }
+
+    /**
+     * Rolling back an undo log is seen atomically by readers as well.
+     */
+    @Test
+    public void rollbackIsSeenAtomically() throws Exception {
+        Grid grid = grid();
+        CardTransactionExecutor executor = CardTransactionExecutor.withUndoLog();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        Thread reader = Thread.ofPlatform().start(() -> {
+            while (!done.get()) {
+                int seen = grid.read(ConcurrentGridTest::greens);
+                if (seen != GREENS) {
+                    torn.compareAndSet(null, "saw " + seen + " greens");
+                }
+            }
+        });
+
+        List<Pair<Resource, GridPosition>> inputs = Collections.nCopies(GREENS, Pair.of(Resource.GREEN, LEFT));
+        List<Pair<Resource, GridPosition>> outputs = Collections.nCopies(GREENS, Pair.of(Resource.GREEN, RIGHT));
+        for (int i = 0; i < WRITES / 4; i++) {
+            int mark = executor.mark();
+            assertTrue(executor.execute(grid, inputs, outputs, Collections.emptyList()));
+            executor.rollbackTo(mark);
+        }
+        done.set(true);
+        reader.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertNull(torn.get());
+        assertEquals(GREENS, grid.getCard(LEFT).orElseThrow().getResourceCount(Resource.GREEN));
+    }
+
+    /**
+     * A listener may read the grid while a write on the same thread is notifying it.
+     */
+    @Test
+    public void listenersCanReadDuringWrite() {
+        Grid grid = grid();
+        List<Integer> seen = new ArrayList<>();
+        grid.addListener((position, card) -> seen.add(grid.read(ConcurrentGridTest::greens)));
+
+        assertTrue(CardTransactionExecutor.allocationFree().execute(grid,
+                Collections.singletonList(Pair.of(Resource.GREEN, LEFT)),
+                Collections.singletonList(Pair.of(Resource.GREEN, RIGHT)),
+                Collections.emptyList()));
+
+        assertEquals(2, seen.size());
+        assertTrue(grid.isConcurrent());
+        assertFalse(grid.fork().isConcurrent());
+    }
+}
@@ -0,0 +1,265 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final GridPosition CENTER = GridPosition.of(0, 0);
+    private static final GridPosition RIGHT = GridPosition.of(1, 0);
+
+    // Every replay needs a fresh pile with the same cards in the same order.
+    private static Pile newPile() {
+        final Effect greenToBulb = new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 1);
+        return new Pile(List.of(
+                new Card(List.of(Resource.GREEN, Resource.GREEN), greenToBulb, null, 2),
+                new Card(List.of(Resource.RED), null, null, 1)), null);
+    }
+
+    private static void playGame(final EventJournal journal, final Grid grid, final Pile pile) {
+        assertTrue(new MoveCard(1, journal).moveCard(pile, CENTER, grid));
+        assertTrue(new MoveCard(1, journal).moveCard(pile, RIGHT, grid));
+        final ProcessAction action = new ProcessAction(new CardTransactionExecutor(), journal);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(action.activateCard(grid.getCard(CENTER).get(), grid,
+                    List.of(Pair.of(Resource.GREEN, CENTER)),
+                    List.of(Pair.of(Resource.BULB, RIGHT)),
+                    List.of(RIGHT)));
+        }
+    }
+
+    // Replaying the journal onto a fresh grid and pile yields the same state.
+    @Test
+    public void replayRebuildsGridAndPile() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final Grid grid = new Grid();
+        final Pile pile = newPile();
+        final List<Collection<SimpleEntry<Integer, Integer>>> patterns = new ArrayList<>();
+        try (EventJournal journal = EventJournal.open(directory)) {
+            playGame(journal, grid, pile);
+            new ActivationPattern(patterns::add, List.of(new SimpleEntry<>(-1, 2), new SimpleEntry<>(0, 0)), journal).select();
+        }
+
+        final Grid replayed = new Grid();
+        final Pile replayedPile = newPile();
+        final List<Collection<SimpleEntry<Integer, Integer>>> replayedPatterns = new ArrayList<>();
+        assertEquals(5, JournalReplay.replay(directory, replayed, replayedPile, replayedPatterns::add));
+
+        assertEquals(grid.state(), replayed.state());
+        assertEquals(pile.state(), replayedPile.state());
+        assertEquals(patterns, replayedPatterns);
+    }
+
+    // Small segments roll over, and reopening appends after the last event.
+    @Test
+    public void reopenedJournalAppendsAcrossSegments() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final Grid grid = new Grid();
+        final Pile pile = newPile();
+        try (EventJournal journal = EventJournal.open(directory, 20)) {
+            assertTrue(new MoveCard(1, journal).moveCard(pile, CENTER, grid));
+        }
+        try (EventJournal journal = EventJournal.open(directory, 20)) {
+            assertTrue(new MoveCard(1, journal).moveCard(pile, RIGHT, grid));
+            final ProcessAction action = new ProcessAction(new CardTransactionExecutor(), journal);
+            assertTrue(action.activateCard(grid.getCard(CENTER).get(), grid,
+                    List.of(Pair.of(Resource.GREEN, CENTER)),
+                    List.of(Pair.of(Resource.BULB, RIGHT)),
+                    List.of(RIGHT)));
+        }
+        assertEquals(2, EventJournal.segments(directory).size());
+
+        final Grid replayed = new Grid();
+        assertEquals(3, JournalReplay.replay(directory, replayed, newPile(), null));
+        assertEquals(grid.state(), replayed.state());
+    }
+
+    // Records of an event without its commit record are ignored.
+    @Test
+    public void replayIgnoresUncommittedTail() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final Grid grid = new Grid();
+        try (EventJournal journal = EventJournal.open(directory)) {
+            playGame(journal, grid, newPile());
+        }
+
+        // simulate a crash after the inputs of the next activation were written
+        final Path segment = EventJournal.segments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final int offset = (1 + 2 + 2 * 4) * EventJournal.RECORD_BYTES;
+            final ByteBuffer tail = ByteBuffer.allocate(EventJournal.RECORD_BYTES);
+            tail.putInt(EventJournal.record(EventJournal.INPUT, Resource.BULB.ordinal(), RIGHT.getIndex())).flip();
+            channel.write(tail, offset);
+        }
+
+        final Grid replayed = new Grid();
+        assertEquals(4, JournalReplay.replay(directory, replayed, newPile(), null));
+        assertEquals(grid.state(), replayed.state());
+
+        // reopening clears the torn record, so new events replay cleanly
+        try (EventJournal journal = EventJournal.open(directory)) {
+            journal.recordPatternSelection(List.of(new SimpleEntry<>(1, 1)));
+        }
+        assertEquals(5, JournalReplay.replay(directory, new Grid(), newPile(), null));
+    }
+
+    // A batch is replayed as a whole, and not at all if its commit record is missing.
+    @Test
+    public void batchIsReplayedAsOneEvent() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final Grid grid = batchGrid();
+        try (EventJournal journal = EventJournal.open(directory)) {
+            // the second activation pays with the bulb produced by the first one
+            assertTrue(new ProcessAction(new CardTransactionExecutor(), journal).activateCards(grid, List.of(
+                    Pair.of(grid.getCard(CENTER).get(), new CardTransaction(
+                            List.of(Pair.of(Resource.GREEN, CENTER)), List.of(Pair.of(Resource.BULB, RIGHT)), List.of())),
+                    Pair.of(grid.getCard(RIGHT).get(), new CardTransaction(
+                            List.of(Pair.of(Resource.BULB, RIGHT)), List.of(Pair.of(Resource.CAR, RIGHT)), List.of())))));
+        }
+
+        final Grid replayed = batchGrid();
+        assertEquals(1, JournalReplay.replay(directory, replayed, newPile(), null));
+        assertEquals(grid.state(), replayed.state());
+
+        // simulate a crash before the commit record: magic, two transfers, step, two transfers
+        final Path segment = EventJournal.segments(directory).get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer end = ByteBuffer.allocate(EventJournal.RECORD_BYTES);
+            end.putInt(EventJournal.END).flip();
+            channel.write(end, 6 * EventJournal.RECORD_BYTES);
+        }
+        final Grid untouched = batchGrid();
+        assertEquals(0, JournalReplay.replay(directory, untouched, newPile(), null));
+        assertEquals(batchGrid().state(), untouched.state());
+    }
+
+    private static Grid batchGrid() {
+        final Grid grid = new Grid();
+        grid.putCard(CENTER, new Card(List.of(Resource.GREEN),
+                new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 0), null, 1));
+        grid.putCard(RIGHT, new Card(new TransformationFixed(List.of(Resource.BULB), List.of(Resource.CAR), 0), null, 1));
+        return grid;
+    }
+
+    // An assisting player id the journal cannot hold is rejected before the grid changes.
+    @Test
+    public void assistedActivationWithUnjournalableIdLeavesGridUntouched() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final Effect assisted = new Effect() {
+            @Override
+            public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
+                return true;
+            }
+
+            @Override
+            public boolean hasAssistance() {
+                return true;
+            }
+
+            @Override
+            public String state() {
+                return "Assisted";
+            }
+        };
+        final Card card = new Card(List.of(Resource.GREEN), assisted, null, 1);
+        final Grid grid = new Grid();
+        grid.putCard(CENTER, card);
+        final String before = grid.state();
+
+        try (EventJournal journal = EventJournal.open(directory)) {
+            final ProcessActionAssistance action = new ProcessActionAssistance(journal);
+            assertFalse(action.activateCard(card, grid, EventJournal.MAX_ASSISTING_PLAYER + 1, card,
+                    List.of(Pair.of(Resource.GREEN, CENTER)), List.of(Pair.of(Resource.BULB, CENTER)), List.of()));
+            assertEquals(before, grid.state());
+
+            assertTrue(action.activateCard(card, grid, EventJournal.MAX_ASSISTING_PLAYER, card,
+                    List.of(Pair.of(Resource.GREEN, CENTER)), List.of(Pair.of(Resource.BULB, CENTER)), List.of()));
+        }
+
+        final Grid replayed = new Grid();
+        replayed.putCard(CENTER, new Card(List.of(Resource.GREEN), assisted, null, 1));
+        assertEquals(1, JournalReplay.replay(directory, replayed, newPile(), null));
+        assertEquals(grid.state(), replayed.state());
+    }
+
+    // An activation too large for a segment is rejected and counted before the grid changes.
+    @Test
+    public void activationLargerThanSegmentLeavesGridUntouched() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final Grid grid = new Grid();
+        final Pile pile = newPile();
+        final ActionMetrics metrics = new ActionMetrics();
+        final String before;
+        // the magic and three records: a card move fits, an activation of four records does not
+        try (EventJournal journal = EventJournal.open(directory, 16)) {
+            assertTrue(new MoveCard(1, journal).moveCard(pile, CENTER, grid));
+            before = grid.state();
+            final ProcessAction action = new ProcessAction(new CardTransactionExecutor(), journal, metrics);
+            assertFalse(action.activateCard(grid.getCard(CENTER).get(), grid,
+                    List.of(Pair.of(Resource.GREEN, CENTER)),
+                    List.of(Pair.of(Resource.BULB, CENTER)),
+                    List.of(CENTER)));
+        }
+
+        assertEquals(before, grid.state());
+        assertEquals(Map.of(RejectionReason.INVALID_ARGUMENT, 1L),
+                metrics.getStats(ActionType.ACTIVATION).rejected());
+        assertEquals(1, JournalReplay.replay(directory, new Grid(), newPile(), null));
+    }
+
+    // A pattern coordinate outside a byte is refused before the grid gets the pattern.
+    @Test
+    public void patternOutOfRangeIsNotSelected() throws IOException {
+        final Path directory = folder.getRoot().toPath();
+        final List<Collection<SimpleEntry<Integer, Integer>>> patterns = new ArrayList<>();
+        final ActivationPattern pattern;
+        try (EventJournal journal = EventJournal.open(directory)) {
+            pattern = new ActivationPattern(patterns::add, List.of(new SimpleEntry<>(0, 200)), journal);
+            try {
+                pattern.select();
+                throw new AssertionError("Pattern was selected");
+            } catch (IllegalArgumentException expected) {
+                // refused by the journal
+            }
+        }
+
+        assertFalse(pattern.isSelected());
+        assertEquals(List.of(), patterns);
+        assertEquals(0, JournalReplay.replay(directory, new Grid(), newPile(), null));
+    }
+
+    // Segments must have room for at least two records.
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentOfOneRecordIsRejected() throws IOException {
+        EventJournal.open(folder.getRoot().toPath(), 4);
+    }
+
+    // A closed journal refuses further events instead of failing with a NullPointerException.
+    @Test(expected = IllegalStateException.class)
+    public void closedJournalRejectsEvents() throws IOException {
+        final EventJournal journal = EventJournal.open(folder.getRoot().toPath());
+        journal.close();
+        journal.close();
+        journal.recordMoveCard(1, CENTER);
+    }
+}
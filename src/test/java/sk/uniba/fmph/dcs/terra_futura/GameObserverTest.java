@@ -4,8 +4,11 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 public class GameObserverTest {
 
@@ -74,4 +77,36 @@ public class GameObserverTest {
 
         assertNull(o1.lastState);
     }
+
+    // A slow observer does not block notifyAll and eventually receives the latest state.
+    @Test
+    public void asyncDispatchCoalescesForSlowObserver() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch latestSeen = new CountDownLatch(1);
+        TerraFuturaObserverInterface slow = gameState -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (gameState.equals("state-99")) {
+                latestSeen.countDown();
+            }
+        };
+
+        try (GameObserver gameObserver = GameObserver.async(2)) {
+            gameObserver.addObserver(1, slow);
+
+            for (int i = 0; i < 100; i++) {
+                gameObserver.notifyAll(Map.of(1, "state-" + i));
+            }
+            ObserverLag lag = gameObserver.getLag(1).orElseThrow();
+            assertEquals(100, lag.published());
+            assertTrue(lag.pending() <= 2);
+            assertTrue(lag.coalesced() > 0);
+
+            release.countDown();
+            assertTrue(latestSeen.await(5, TimeUnit.SECONDS));
+        }
+    }
 }
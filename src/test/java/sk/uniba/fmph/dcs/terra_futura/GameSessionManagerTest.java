@@ -0,0 +1,160 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class GameSessionManagerTest {
+
+    // Actions of one game run in submission order on a single thread.
+    @Test
+    public void runsActionsOfOneGameInOrderOnOneThread() throws Exception {
+        try (GameSessionManager<List<Integer>> manager = new GameSessionManager<>(4, 100, 1000)) {
+            assertTrue(manager.open(7, ArrayList::new).join());
+
+            final List<CompletableFuture<String>> threads = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                final int value = i;
+                threads.add(manager.submit(7, game -> {
+                    game.add(value);
+                    return Thread.currentThread().getName();
+                }));
+            }
+            final List<Integer> result = manager.submit(7, game -> List.copyOf(game)).get(5, TimeUnit.SECONDS);
+
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, (int) result.get(i));
+                assertEquals(threads.get(0).get(), threads.get(i).get());
+            }
+        }
+    }
+
+    // Games above the limit and duplicate ids are refused.
+    @Test
+    public void limitsNumberOfGames() {
+        try (GameSessionManager<Grid> manager = new GameSessionManager<>(2, 2, 10)) {
+            assertTrue(manager.open(1, Grid::new).join());
+            assertFalse(manager.open(1, Grid::new).join());
+            assertTrue(manager.open(2, Grid::new).join());
+            assertFalse(manager.open(3, Grid::new).join());
+            assertEquals(2, manager.getGameCount());
+
+            assertTrue(manager.end(1));
+            assertFalse(manager.end(1));
+            assertTrue(manager.open(3, Grid::new).join());
+        }
+    }
+
+    // Unknown games and full queues fail the returned future.
+    @Test
+    public void rejectsActionsWhenQueueIsFull() throws Exception {
+        try (GameSessionManager<Grid> manager = new GameSessionManager<>(1, 10, 2)) {
+            assertTrue(manager.open(1, Grid::new).join());
+            assertFailsWith(IllegalArgumentException.class, manager.submit(2, grid -> true));
+
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch started = new CountDownLatch(1);
+            manager.submit(1, grid -> {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+            started.await(5, TimeUnit.SECONDS);
+            manager.submit(1, grid -> true);
+            manager.submit(1, grid -> true);
+            final CompletableFuture<Boolean> rejected = manager.submit(1, grid -> true);
+
+            final ShardMetrics metrics = manager.getShardMetrics().get(0);
+            assertEquals(2, metrics.queueDepth());
+            assertEquals(1, metrics.rejected());
+            assertEquals(1, metrics.games());
+            release.countDown();
+            assertFailsWith(RejectedExecutionException.class, rejected);
+        }
+    }
+
+    // Actions still queued for an ended game fail.
+    @Test
+    public void failsActionsOfEndedGame() throws Exception {
+        try (GameSessionManager<Grid> manager = new GameSessionManager<>(1, 10, 10)) {
+            assertTrue(manager.open(1, Grid::new).join());
+            final CountDownLatch release = new CountDownLatch(1);
+            manager.submit(1, grid -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            });
+            final CompletableFuture<Boolean> pending = manager.submit(1, grid -> true);
+            assertTrue(manager.end(1));
+            release.countDown();
+            assertFailsWith(IllegalStateException.class, pending);
+        }
+    }
+
+    // A failing factory fails the open, frees the game and fails its queued actions.
+    @Test
+    public void failedFactoryClosesGame() throws Exception {
+        try (GameSessionManager<Grid> manager = new GameSessionManager<>(1, 10, 10)) {
+            final CountDownLatch release = new CountDownLatch(1);
+            final CompletableFuture<Boolean> opened = manager.open(1, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("no deck");
+            });
+            final CompletableFuture<Boolean> pending = manager.submit(1, grid -> true);
+            release.countDown();
+
+            assertFailsWith(IllegalStateException.class, opened);
+            assertFailsWith(IllegalStateException.class, pending);
+            assertEquals(0, manager.getGameCount());
+            assertEquals(0, manager.getShardMetrics().get(0).games());
+            assertTrue(manager.open(1, Grid::new).join());
+        }
+    }
+
+    // Errors thrown by an action fail its future instead of leaving it incomplete.
+    @Test
+    public void errorOfActionFailsFuture() throws Exception {
+        try (GameSessionManager<Grid> manager = new GameSessionManager<>(1, 10, 10)) {
+            assertTrue(manager.open(1, Grid::new).join());
+            assertFailsWith(AssertionError.class, manager.submit(1, grid -> {
+                throw new AssertionError("broken action");
+            }));
+            assertTrue(manager.submit(1, grid -> true).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    private static void assertFailsWith(final Class<? extends Throwable> type, final CompletableFuture<?> future)
+            throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            assertEquals(type, e.getCause().getClass());
+            return;
+        } catch (TimeoutException e) {
+            throw new AssertionError("Future did not complete", e);
+        }
+        throw new AssertionError("Future did not fail");
+    }
+}
@@ -0,0 +1,71 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GameSimulatorTest {
+
+    private static final Resource[] BASIC = {Resource.GREEN, Resource.RED, Resource.YELLOW};
+
+    // Random cards with a few resources and a simple transformation.
+    private static Pile deal(final RandomGenerator random) {
+        final List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            final Resource resource = BASIC[random.nextInt(BASIC.length)];
+            final Effect upper = new EffectOr(List.of(
+                    new TransformationFixed(List.of(resource), List.of(Resource.BULB), random.nextInt(2)),
+                    new ArbitraryBasic(2, List.of(Resource.CAR), 1)));
+            cards.add(new Card(List.of(resource, BASIC[random.nextInt(BASIC.length)]), upper, null, 1 + random.nextInt(2)));
+        }
+        return new Pile(cards, null);
+    }
+
+    private static GameSimulator simulator() {
+        final List<Function<Grid, ScoringMethod>> methods = List.of(
+                grid -> new ScoringMethod(List.of(Resource.BULB, Resource.CAR), new Points(6), grid),
+                grid -> new ScoringMethod(List.of(Resource.GREEN, Resource.RED, Resource.YELLOW), new Points(3), grid));
+        final List<List<SimpleEntry<Integer, Integer>>> patterns = List.of(
+                List.of(new SimpleEntry<>(0, 0), new SimpleEntry<>(1, 1)),
+                List.of(new SimpleEntry<>(-1, 0), new SimpleEntry<>(0, -1)));
+        return new GameSimulator(GameSimulatorTest::deal, 9, patterns, methods);
+    }
+
+    // The same seed always plays the same game.
+    @Test
+    public void gamesAreDeterministic() {
+        final GameSimulator simulator = simulator();
+        for (int game = 0; game < 20; game++) {
+            final long seed = GameSimulator.gameSeed(42, game);
+            assertEquals(simulator.playGame(seed, SimulationPolicy.random()), simulator.playGame(seed, SimulationPolicy.random()));
+        }
+    }
+
+    // Results do not depend on the number of threads.
+    @Test
+    public void parallelSimulationMatchesSequential() {
+        final GameSimulator simulator = simulator();
+        final ForkJoinPool single = new ForkJoinPool(1);
+        final ForkJoinPool parallel = new ForkJoinPool(4);
+        try {
+            final ScoreDistribution sequential = simulator.simulate(500, 7, SimulationPolicy.random(), single);
+            final ScoreDistribution concurrent = simulator.simulate(500, 7, SimulationPolicy.random(), parallel);
+
+            assertEquals(500, concurrent.getGames());
+            assertEquals(sequential.getFrequencies(), concurrent.getFrequencies());
+            assertTrue(concurrent.getFrequencies().size() > 1);
+            assertTrue(concurrent.getPercentile(50) <= concurrent.getPercentile(90));
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class GameSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static GameSnapshot sampleGame() {
+        final Effect upper = new EffectOr(List.of(
+                new TransformationFixed(List.of(Resource.RED, Resource.GREEN), List.of(Resource.BULB), 1),
+                new ArbitraryBasic(2, List.of(Resource.CAR), 0)));
+        final Grid grid = new Grid();
+        grid.putCard(GridPosition.of(-2, -2), new Card(List.of(Resource.GREEN, Resource.POLLUTION, Resource.POLLUTION), upper, null, 1));
+        grid.putCard(GridPosition.of(2, 1), new Card(List.of(Resource.MONEY), null, upper, 3));
+
+        final List<Card> visible = new ArrayList<>();
+        visible.add(new Card(List.of(Resource.GEAR), upper, upper, 0));
+        visible.add(null);
+        final Pile pile = new Pile(visible, List.of(new Card(null, null, 2)));
+
+        final ActivationPattern pattern = new ActivationPattern(p -> { }, List.of(new SimpleEntry<>(-1, 2), new SimpleEntry<>(0, 0)));
+        pattern.select();
+        return new GameSnapshot(grid, pile, pattern);
+    }
+
+    // A snapshot read back from a buffer has the same state as the original.
+    @Test
+    public void roundTripsThroughBuffer() {
+        final GameSnapshot game = sampleGame();
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        game.writeTo(buffer);
+        buffer.flip();
+
+        final GameSnapshot restored = GameSnapshot.readFrom(buffer, null);
+        assertEquals(game.grid().state(), restored.grid().state());
+        assertEquals(game.pile().state(), restored.pile().state());
+        assertEquals(game.activationPattern().state(), restored.activationPattern().state());
+        assertTrue(restored.activationPattern().isSelected());
+        assertEquals(0, buffer.remaining());
+    }
+
+    // Restored cards keep their identity, so the grid hash survives a round trip.
+    @Test
+    public void keepsGridHash() {
+        final GameSnapshot game = sampleGame();
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+        game.writeTo(buffer);
+        buffer.flip();
+
+        final Grid restored = GameSnapshot.readFrom(buffer, null).grid();
+        assertEquals(game.grid().getZobristHash(), restored.getZobristHash());
+        assertEquals(game.grid().getCard(GridPosition.of(2, 1)).orElseThrow().getZobristHash(),
+                restored.getCard(GridPosition.of(2, 1)).orElseThrow().getZobristHash());
+    }
+
+    // Snapshots can be written to and mapped from a file.
+    @Test
+    public void roundTripsThroughFileChannel() throws IOException {
+        final GameSnapshot game = new GameSnapshot(sampleGame().grid(), new Pile(null, null), null);
+        final Path file = folder.newFile("game.snapshot").toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            game.writeTo(channel, ByteBuffer.allocateDirect(4096));
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final GameSnapshot restored = GameSnapshot.readFrom(channel, null);
+            assertEquals(game.grid().state(), restored.grid().state());
+            assertNull(restored.activationPattern());
+        }
+    }
+
+    // Snapshots of another version are refused.
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownVersion() {
+        final ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putInt(GameSnapshot.MAGIC).putShort((short) (GameSnapshot.VERSION + 1)).flip();
+        GameSnapshot.readFrom(buffer, null);
+    }
+
+    // Pattern coordinates that do not fit into a byte are refused instead of truncated.
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPatternCoordinatesOutOfRange() {
+        new ActivationPattern(p -> { }, List.of(new SimpleEntry<>(0, 128))).writeSnapshot(ByteBuffer.allocate(64));
+    }
+
+    // Effects outside the built-in types cannot be written.
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownEffects() {
+        final Effect custom = new Effect() {
+            @Override
+            public boolean check(final List<Resource> input, final List<Resource> output, final int pollution) {
+                return false;
+            }
+
+            @Override
+            public boolean hasAssistance() {
+                return true;
+            }
+
+            @Override
+            public String state() {
+                return "custom";
+            }
+        };
+        new Card(custom, null, 0).writeSnapshot(ByteBuffer.allocate(64));
+    }
+}
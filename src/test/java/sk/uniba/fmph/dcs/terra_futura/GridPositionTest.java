@@ -0,0 +1,45 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GridPosition class.
+ */
+public class GridPositionTest {
+
+    /**
+     * of() returns the shared instance, equal to a freshly constructed position.
+     */
+    @Test
+    public void ofReturnsCachedInstance() {
+        GridPosition position = GridPosition.of(-1, 2);
+
+        assertSame(position, GridPosition.of(-1, 2));
+        assertEquals(new GridPosition(-1, 2), position);
+        assertEquals(new GridPosition(-1, 2).hashCode(), position.hashCode());
+    }
+
+    /**
+     * Indices follow (x + 2) * 5 + (y + 2) and round-trip through fromIndex().
+     */
+    @Test
+    public void indexRoundTrips() {
+        assertEquals(0, GridPosition.of(-2, -2).getIndex());
+        assertEquals(12, GridPosition.of(0, 0).getIndex());
+        assertEquals(24, GridPosition.of(2, 2).getIndex());
+
+        for (int i = 0; i < GridPosition.CELL_COUNT; i++) {
+            assertEquals(i, GridPosition.fromIndex(i).getIndex());
+        }
+    }
+
+    /**
+     * Out-of-range coordinates are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void ofRejectsOutOfRange() {
+        GridPosition.of(3, 0);
+    }
+}
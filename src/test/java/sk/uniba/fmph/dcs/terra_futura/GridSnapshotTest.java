@@ -0,0 +1,121 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the GridSnapshot class.
+ */
+public class GridSnapshotTest {
+    private static final GridPosition SOURCE = GridPosition.of(0, 0);
+    private static final GridPosition TARGET = GridPosition.of(1, 0);
+
+    /**
+     * Every placement and applied transaction publishes a new version;
+     * earlier snapshots keep showing their own version.
+     */
+    @Test
+    public void commitsPublishNewVersions() {
+        Grid grid = Grid.withSnapshots();
+        GridSnapshot empty = grid.getSnapshot();
+        assertEquals(0, empty.getVersion());
+
+        Pile pile = new Pile(List.of(new Card(List.of(Resource.GREEN, Resource.GREEN), null, null, 0)), List.of());
+        assertTrue(new MoveCard(1).moveCard(pile, SOURCE, grid));
+        grid.putCard(TARGET, new Card(null, null, 0));
+        GridSnapshot placed = grid.getSnapshot();
+        assertEquals(2, placed.getVersion());
+        assertEquals(grid.state(), placed.state());
+
+        CardTransactionExecutor executor = new CardTransactionExecutor();
+        assertTrue(executor.execute(grid, Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                Collections.singletonList(Pair.of(Resource.BULB, TARGET)), Collections.singletonList(TARGET)));
+        // a rejected transaction publishes nothing
+        assertFalse(executor.execute(grid, Collections.singletonList(Pair.of(Resource.BULB, TARGET)),
+                Collections.emptyList(), Collections.emptyList()));
+
+        GridSnapshot moved = grid.getSnapshot();
+        assertEquals(3, moved.getVersion());
+        assertEquals(grid.state(), moved.state());
+        assertEquals(grid.getZobristHash(), moved.getZobristHash());
+        assertEquals(List.of(Resource.GREEN), moved.getResources(SOURCE));
+        assertEquals(1, moved.getResourceCount(TARGET, Resource.BULB));
+        assertFalse(moved.isActive(TARGET));
+
+        assertEquals(2, placed.getResourceCount(SOURCE, Resource.GREEN));
+        assertTrue(placed.isActive(TARGET));
+        assertFalse(empty.hasCard(SOURCE));
+        assertSame(moved.state(), moved.state());
+    }
+
+    /**
+     * Undo-log rollbacks publish the restored state.
+     */
+    @Test
+    public void rollbackPublishesRestoredState() {
+        Grid grid = Grid.withSnapshots();
+        grid.putCard(SOURCE, new Card(List.of(Resource.GREEN), null, null, 0));
+        String before = grid.getSnapshot().state();
+
+        CardTransactionExecutor executor = CardTransactionExecutor.withUndoLog();
+        int mark = executor.mark();
+        assertTrue(executor.execute(grid, Collections.singletonList(Pair.of(Resource.GREEN, SOURCE)),
+                Collections.emptyList(), Collections.emptyList()));
+        assertEquals(0, grid.getSnapshot().getResourceCount(SOURCE, Resource.GREEN));
+
+        executor.rollbackTo(mark);
+        assertEquals(before, grid.getSnapshot().state());
+        assertEquals(3, grid.getSnapshot().getVersion());
+    }
+
+    /**
+     * Readers on other threads only ever see whole transactions.
+     */
+    @Test
+    public void readersSeeWholeTransactions() throws Exception {
+        Grid grid = Grid.withSnapshots();
+        grid.putCard(SOURCE, new Card(Collections.nCopies(4, Resource.GREEN), null, null, 0));
+        grid.putCard(TARGET, new Card(null, null, 0));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> torn = new AtomicReference<>();
+
+        Thread reader = Thread.ofPlatform().start(() -> {
+            while (!done.get()) {
+                GridSnapshot snapshot = grid.getSnapshot();
+                int total = snapshot.getResourceCount(SOURCE, Resource.GREEN)
+                        + snapshot.getResourceCount(TARGET, Resource.GREEN);
+                if (total != 4) {
+                    torn.compareAndSet(null, "version " + snapshot.getVersion() + " has " + total + " greens");
+                }
+            }
+        });
+
+        CardTransactionExecutor executor = CardTransactionExecutor.allocationFree();
+        List<Pair<Resource, GridPosition>> there = Collections.nCopies(4, Pair.of(Resource.GREEN, SOURCE));
+        List<Pair<Resource, GridPosition>> back = Collections.nCopies(4, Pair.of(Resource.GREEN, TARGET));
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(executor.execute(grid, there, back, Collections.emptyList()));
+            assertTrue(executor.execute(grid, back, there, Collections.emptyList()));
+        }
+        done.set(true);
+        reader.join(10_000);
+
+        assertNull(torn.get());
+        assertEquals(20_002, grid.getSnapshot().getVersion());
+    }
+
+    /**
+     * Only grids created by withSnapshots() publish snapshots.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void plainGridHasNoSnapshots() {
+        new Grid().getSnapshot();
+    }
+}
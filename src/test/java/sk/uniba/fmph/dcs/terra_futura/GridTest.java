@@ -0,0 +1,145 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the Grid class.
+ */
+public class GridTest {
+
+    /**
+     * state() writes cards as nested JSON objects, including escaped effect states.
+     */
+    @Test
+    public void stateNestsCardsAsObjects() {
+        Grid grid = new Grid();
+        Effect effect = new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.CAR), 0);
+        grid.putCard(GridPosition.of(0, 1), new Card(List.of(Resource.GREEN, Resource.GREEN), effect, null, 1));
+
+        JSONArray cards = new JSONObject(grid.state()).getJSONArray("cards");
+        assertEquals(1, cards.length());
+
+        JSONObject cell = cards.getJSONObject(0);
+        assertEquals(0, cell.getInt("x"));
+        assertEquals(1, cell.getInt("y"));
+        JSONObject card = cell.getJSONObject("card");
+        assertEquals(2, card.getJSONArray("resources").length());
+        assertEquals(effect.state(), card.getString("upperEffect"));
+        assertFalse(card.getBoolean("inactive"));
+    }
+
+    /**
+     * writeState() appends to an existing sink and matches state().
+     */
+    @Test
+    public void writeStateAppendsToSink() throws IOException {
+        Grid grid = new Grid();
+        grid.putCard(GridPosition.of(0, 0), new Card(List.of(Resource.RED), null, null, 0));
+
+        StringBuilder sink = new StringBuilder("[");
+        grid.writeState(sink);
+        sink.append(']');
+
+        assertEquals("[" + grid.state() + "]", sink.toString());
+        assertEquals(new JSONArray(sink.toString()).getJSONObject(0).toString(), new JSONObject(grid.state()).toString());
+    }
+
+    /**
+     * writeState() streams a grid changed since its state was cached, and matches the rebuilt state().
+     */
+    @Test
+    public void writeStateStreamsChangedGrid() throws IOException {
+        Grid grid = new Grid();
+        Card card = new Card(List.of(Resource.RED), null, null, 0);
+        grid.putCard(GridPosition.of(0, 0), card);
+        String before = grid.state();
+        card.putResources(List.of(Resource.GREEN));
+
+        StringBuilder sink = new StringBuilder();
+        grid.writeState(sink);
+
+        assertNotEquals(before, sink.toString());
+        assertEquals(grid.state(), sink.toString());
+    }
+
+    /**
+     * A card cannot lie on two grids, but its copy can.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void cardCannotBePutOnSecondGrid() {
+        Card card = new Card(List.of(Resource.RED), null, null, 0);
+        new Grid().putCard(GridPosition.of(0, 0), card);
+        new Grid().putCard(GridPosition.of(0, 0), card.copy());
+
+        new Grid().putCard(GridPosition.of(0, 0), card);
+    }
+
+    /**
+     * Listeners see card placements and resource changes.
+     */
+    @Test
+    public void listenersSeePlacementsAndResourceChanges() {
+        Grid grid = new Grid();
+        int[] events = new int[1];
+        grid.addListener((position, card) -> events[0]++);
+
+        Card card = new Card(List.of(Resource.RED), null, null, 0);
+        grid.putCard(GridPosition.of(0, 0), card);
+        card.putResources(List.of(Resource.GREEN));
+
+        assertEquals(2, events[0]);
+    }
+
+    /**
+     * A forked grid changes independently of the original and has no listeners.
+     */
+    @Test
+    public void forkIsIndependentOfOriginal() {
+        Grid grid = new Grid();
+        int[] events = new int[1];
+        grid.addListener((position, card) -> events[0]++);
+        grid.putCard(GridPosition.of(0, 0), new Card(List.of(Resource.RED), null, null, 0));
+        String before = grid.state();
+
+        Grid branch = grid.fork();
+        branch.getCard(GridPosition.of(0, 0)).get().putResources(List.of(Resource.GREEN));
+        branch.putCard(GridPosition.of(1, 1), new Card(null, null, 1));
+
+        assertEquals(before, grid.state());
+        assertEquals(1, events[0]);
+        assertEquals(1, branch.getCard(GridPosition.of(0, 0)).get().getResourceCount(Resource.GREEN));
+        assertTrue(grid.canPutCard(GridPosition.of(1, 1)));
+
+        grid.getCard(GridPosition.of(0, 0)).get().getResources(List.of(Resource.RED));
+        assertEquals(1, branch.getCard(GridPosition.of(0, 0)).get().getResourceCount(Resource.RED));
+    }
+
+    /**
+     * Grid state is cached per modification count and reuses the JSON of unchanged cards.
+     */
+    @Test
+    public void stateIsRebuiltOnlyForChanges() {
+        Grid grid = new Grid();
+        Card unchanged = new Card(List.of(Resource.RED), null, null, 0);
+        Card changed = new Card(List.of(Resource.GREEN), null, null, 0);
+        grid.putCard(GridPosition.of(0, 0), unchanged);
+        grid.putCard(GridPosition.of(1, 0), changed);
+        String state = grid.state();
+        String unchangedState = unchanged.state();
+        assertSame(state, grid.state());
+
+        changed.putResources(List.of(Resource.CAR));
+        assertEquals(3, grid.getModCount());
+        assertNotEquals(state, grid.state());
+        assertSame(unchangedState, unchanged.state());
+        assertEquals(2, new JSONObject(grid.state()).getJSONArray("cards")
+                .getJSONObject(1).getJSONObject("card").getJSONArray("resources").length());
+    }
+}
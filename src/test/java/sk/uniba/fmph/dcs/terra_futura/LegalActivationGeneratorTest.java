@@ -0,0 +1,96 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the LegalActivationGenerator class.
+ */
+public class LegalActivationGeneratorTest {
+    private static final GridPosition ACTIVATED = GridPosition.of(0, 0);
+    private static final GridPosition FIRST = GridPosition.of(1, 0);
+    private static final GridPosition SECOND = GridPosition.of(0, 1);
+
+    // Helper method that creates a grid where the activated card has the given upper effect
+    private static Grid grid(final Effect upperEffect) {
+        Grid grid = new Grid();
+        grid.putCard(ACTIVATED, new Card(upperEffect, null, 1));
+        grid.putCard(FIRST, new Card(List.of(Resource.GREEN), null, null, 1));
+        grid.putCard(SECOND, new Card(List.of(Resource.GREEN, Resource.RED), null, null, 1));
+        return grid;
+    }
+
+    /**
+     * Every combination of payment source and pollution target is enumerated,
+     * and each of them is accepted by ProcessAction.
+     */
+    @Test
+    public void enumeratesAllLegalActivations() {
+        Effect effect = new TransformationFixed(List.of(Resource.GREEN), List.of(Resource.BULB), 1);
+        Grid grid = grid(effect);
+
+        List<LegalActivation> activations = new LegalActivationGenerator(grid).activations(ACTIVATED).collect(Collectors.toList());
+
+        // GREEN from one of two cards, pollution on one of three cards
+        assertEquals(6, activations.size());
+        for (LegalActivation activation : activations) {
+            Grid fresh = grid(effect);
+            Card card = fresh.getCard(ACTIVATED).orElseThrow();
+            assertTrue(new ProcessAction().activateCard(card, fresh, activation.inputs(), activation.outputs(), activation.pollution()));
+        }
+
+        // enumeration has no side effects
+        assertEquals(List.of(Resource.GREEN), grid.getCard(FIRST).orElseThrow().getResources());
+        assertTrue(grid.getCard(ACTIVATED).orElseThrow().getResources().isEmpty());
+    }
+
+    /**
+     * Equivalent alternatives of an OR effect produce each activation once.
+     */
+    @Test
+    public void deduplicatesEquivalentActivations() {
+        Effect single = new ArbitraryBasic(1, List.of(Resource.CAR), 0);
+        Effect twice = new EffectOr(List.of(single, new ArbitraryBasic(1, List.of(Resource.CAR), 0)));
+
+        long expected = new LegalActivationGenerator(grid(single)).activations(ACTIVATED).count();
+
+        // GREEN from either card or RED from the second one
+        assertEquals(3, expected);
+        assertEquals(expected, new LegalActivationGenerator(grid(twice)).activations(ACTIVATED).count());
+    }
+
+    /**
+     * An activation allowed by both effects of the card is listed once, as an upper one.
+     */
+    @Test
+    public void listsActivationOfBothEffectsOnce() {
+        Effect effect = new ArbitraryBasic(1, List.of(Resource.CAR), 0);
+        Grid grid = grid(effect);
+        grid.putCard(GridPosition.of(1, 1), new Card(effect, effect, 1));
+
+        List<LegalActivation> activations = new LegalActivationGenerator(grid).activations(GridPosition.of(1, 1))
+                .collect(Collectors.toList());
+
+        assertEquals(3, activations.size());
+        for (LegalActivation activation : activations) {
+            assertFalse(activation.lowerEffect());
+        }
+    }
+
+    /**
+     * Missing resources or a missing card yield no activations.
+     */
+    @Test
+    public void noActivationsWithoutResourcesOrCard() {
+        Effect effect = new TransformationFixed(List.of(Resource.GEAR), List.of(Resource.CAR), 0);
+        LegalActivationGenerator generator = new LegalActivationGenerator(grid(effect));
+
+        assertEquals(0, generator.activations(ACTIVATED).count());
+        assertEquals(Collections.emptyList(), generator.activations(GridPosition.of(2, 2)).collect(Collectors.toList()));
+    }
+}
@@ -150,4 +150,67 @@ public class ProcessActionTest {
         // effect approves, but CardTransactionExecutor will fail (no card on the grid)
         assertFalse(result);
     }
+
+    /**
+     * activateCards() applies nothing if any card's effect rejects its activation.
+     */
+    @Test
+    public void activateCardsIsAllOrNothing() {
+        GridPosition position = GridPosition.of(0, 0);
+        Card approving = createCardWithEffect(new FakeEffect(true));
+        Card rejecting = createCardWithEffect(new FakeEffect(false));
+        Grid grid = new Grid();
+        grid.putCard(position, approving);
+        ProcessAction action = new ProcessAction();
+
+        CardTransaction gainGreen = new CardTransaction(
+                Collections.emptyList(), Collections.singletonList(Pair.of(Resource.GREEN, position)), Collections.emptyList());
+        CardTransaction payGreen = new CardTransaction(
+                Collections.singletonList(Pair.of(Resource.GREEN, position)), Collections.emptyList(), Collections.emptyList());
+
+        assertFalse(action.activateCards(grid, List.of(Pair.of(approving, gainGreen), Pair.of(rejecting, payGreen))));
+        assertTrue(approving.getResources().isEmpty());
+
+        assertTrue(action.activateCards(grid, List.of(Pair.of(approving, gainGreen), Pair.of(approving, payGreen))));
+        assertTrue(approving.getResources().isEmpty());
+    }
+
+    /**
+     * A card polluted into inactivity by an earlier activation of the batch cannot be
+     * activated later in it, even if its own cell is not part of its transaction.
+     */
+    @Test
+    public void activateCardsMatchesSequentialActivation() {
+        GridPosition a = GridPosition.of(0, 0);
+        GridPosition b = GridPosition.of(1, 0);
+        GridPosition c = GridPosition.of(2, 0);
+        CardTransaction polluteB = new CardTransaction(
+                Collections.emptyList(), Collections.emptyList(), Collections.singletonList(b));
+        CardTransaction convertOnC = new CardTransaction(
+                Collections.singletonList(Pair.of(Resource.GREEN, c)),
+                Collections.singletonList(Pair.of(Resource.CAR, c)), Collections.emptyList());
+
+        for (boolean batched : new boolean[]{true, false}) {
+            Card cardA = createCardWithEffect(new FakeEffect(true));
+            Card cardB = new Card(Collections.emptyList(), new FakeEffect(true), null, 0);
+            Card cardC = new Card(Collections.singletonList(Resource.GREEN), null, null, 1);
+            Grid grid = new Grid();
+            grid.putCard(a, cardA);
+            grid.putCard(b, cardB);
+            grid.putCard(c, cardC);
+            String before = grid.state();
+            ProcessAction action = new ProcessAction();
+
+            if (batched) {
+                assertFalse(action.activateCards(grid, List.of(Pair.of(cardA, polluteB), Pair.of(cardB, convertOnC))));
+                assertEquals(before, grid.state());
+            } else {
+                assertTrue(action.activateCard(cardA, grid,
+                        polluteB.inputs(), polluteB.outputs(), polluteB.pollution()));
+                assertFalse(action.activateCard(cardB, grid,
+                        convertOnC.inputs(), convertOnC.outputs(), convertOnC.pollution()));
+            }
+            assertEquals(Collections.singletonList(Resource.GREEN), cardC.getResources());
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for the ScoringEvaluator class.
+ */
+public class ScoringEvaluatorTest {
+
+    private static Grid grid(final Resource... resources) {
+        Grid grid = new Grid();
+        grid.putCard(GridPosition.of(0, 0), new Card(Arrays.asList(resources), null, null, 0));
+        return grid;
+    }
+
+    /**
+     * Options are ranked by points, ties keep their order, and nothing is selected.
+     */
+    @Test
+    public void ranksOptionsWithoutSelecting() {
+        Grid grid = grid(Resource.GREEN, Resource.GREEN, Resource.RED, Resource.BULB);
+        ScoringMethod greens = new ScoringMethod(List.of(Resource.GREEN), new Points(2), grid);
+        ScoringMethod bulbs = new ScoringMethod(List.of(Resource.BULB), new Points(10), grid);
+        ScoringMethod cars = new ScoringMethod(List.of(Resource.CAR), new Points(10), grid);
+        ScoringMethod reds = new ScoringMethod(List.of(Resource.RED), new Points(4), grid);
+
+        List<ScoredMethod> ranked = new ScoringEvaluator().rank(grid, List.of(greens, bulbs, cars, reds));
+
+        // basic points: 1 + 1 + 1 + 5 = 8
+        assertEquals(List.of(1, 0, 3, 2), ranked.stream().map(ScoredMethod::index).toList());
+        assertEquals(18, ranked.get(0).points().value());
+        assertEquals(12, ranked.get(1).points().value());
+        assertEquals(12, ranked.get(2).points().value());
+        assertEquals(8, ranked.get(3).points().value());
+        assertEquals(Optional.empty(), bulbs.getCalculatedTotal());
+
+        bulbs.selectThisMethodAndCalculate();
+        assertEquals(bulbs.getCalculatedTotal().get(), ranked.get(0).points());
+    }
+
+    /**
+     * The same options are scored against every player's own grid.
+     */
+    @Test
+    public void ranksOptionsForEveryPlayer() {
+        Grid first = grid(Resource.GREEN, Resource.GREEN);
+        Grid second = grid(Resource.CAR);
+        List<ScoringMethod> methods = List.of(
+                new ScoringMethod(List.of(Resource.GREEN), new Points(3), first),
+                new ScoringMethod(List.of(Resource.CAR), new Points(3), first));
+
+        Map<Integer, List<ScoredMethod>> ranked = new ScoringEvaluator().rankAll(Map.of(1, first, 2, second), methods);
+
+        assertEquals(0, ranked.get(1).get(0).index());
+        assertEquals(8, ranked.get(1).get(0).points().value());
+        assertEquals(1, ranked.get(2).get(0).index());
+        assertEquals(9, ranked.get(2).get(0).points().value());
+    }
+}
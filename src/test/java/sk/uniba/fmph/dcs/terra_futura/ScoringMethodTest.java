@@ -1,5 +1,6 @@
 package sk.uniba.fmph.dcs.terra_futura;
 
+import org.apache.commons.lang3.tuple.Pair;
 import org.json.JSONObject;
 import org.junit.Test;
 
@@ -118,6 +119,27 @@ public class ScoringMethodTest {
         assertEquals(8, totalOpt.get().value());
     }
 
+    /**
+     * The number of combinations is limited by the scarcest required resource.
+     *
+     * Grid resources: GREEN = 5, RED = 2, basic score 7.
+     * Pattern: [GREEN, GREEN, RED], so min(5 / 2, 2 / 1) = 2 combinations → +6 points.
+     */
+    @Test
+    public void countsMultipleCombinations() {
+        Grid grid = new Grid();
+        grid.putCard(new GridPosition(0, 0), card(Resource.GREEN, Resource.GREEN, Resource.GREEN, Resource.RED));
+        grid.putCard(new GridPosition(1, 0), card(Resource.GREEN, Resource.GREEN, Resource.RED));
+
+        ScoringMethod method = new ScoringMethod(List.of(Resource.GREEN, Resource.RED, Resource.GREEN), new Points(3), grid);
+        assertEquals(2, method.getRequiredCount(Resource.GREEN));
+        assertEquals(1, method.getRequiredCount(Resource.RED));
+        assertEquals(0, method.getRequiredCount(Resource.CAR));
+
+        method.selectThisMethodAndCalculate();
+        assertEquals(13, method.getCalculatedTotal().orElseThrow().value());
+    }
+
     /**
      * Pollution should reduce the score by -1 for each polluted card.
      *
@@ -174,4 +196,58 @@ public class ScoringMethodTest {
         assertTrue(jsonAfter.has("calculatedTotal"));
         assertEquals(method.getCalculatedTotal().orElseThrow().value(), jsonAfter.getInt("calculatedTotal"));
     }
+
+    /**
+     * An incremental method follows card placements and transactions
+     * and always agrees with a full recalculation.
+     */
+    @Test
+    public void incrementalTotalFollowsGridChanges() {
+        Grid grid = new Grid();
+        grid.putCard(new GridPosition(0, 0), new Card(List.of(Resource.GREEN, Resource.GREEN), null, null, 1));
+
+        List<Resource> pattern = List.of(Resource.GREEN, Resource.BULB);
+        ScoringMethod incremental = ScoringMethod.incremental(pattern, new Points(10), grid);
+        ScoringMethod full = new ScoringMethod(pattern, new Points(10), grid);
+
+        assertTrue(incremental.isIncremental());
+        assertEquals(2, incremental.getCalculatedTotal().orElseThrow().value());
+
+        grid.putCard(new GridPosition(1, 0), card(Resource.BULB));
+        full.selectThisMethodAndCalculate();
+        assertEquals(17, incremental.getCalculatedTotal().orElseThrow().value());
+        assertEquals(full.getCalculatedTotal(), incremental.getCalculatedTotal());
+
+        // GREEN -> CAR on the first card, pollution makes the second card polluted
+        boolean executed = new CardTransactionExecutor().execute(grid,
+                List.of(Pair.of(Resource.GREEN, new GridPosition(0, 0))),
+                List.of(Pair.of(Resource.CAR, new GridPosition(0, 0))),
+                List.of(new GridPosition(1, 0)));
+        assertTrue(executed);
+        full.selectThisMethodAndCalculate();
+        assertEquals(full.getCalculatedTotal(), incremental.getCalculatedTotal());
+
+        // after stopping, the total no longer follows the grid
+        incremental.stopTracking();
+        grid.putCard(new GridPosition(2, 0), card(Resource.CAR));
+        assertFalse(incremental.isIncremental());
+        assertEquals(full.getCalculatedTotal(), incremental.getCalculatedTotal());
+    }
+
+    /**
+     * Calculating the total changes the cached state.
+     */
+    @Test
+    public void stateIsCachedUntilCalculated() {
+        Grid grid = new Grid();
+        grid.putCard(GridPosition.of(0, 0), card(Resource.GREEN));
+        ScoringMethod method = new ScoringMethod(List.of(Resource.GREEN), new Points(2), grid);
+        String state = method.state();
+        assertSame(state, method.state());
+        assertFalse(new JSONObject(state).has("calculatedTotal"));
+
+        method.selectThisMethodAndCalculate();
+        assertEquals(1, method.getModCount());
+        assertTrue(new JSONObject(method.state()).has("calculatedTotal"));
+    }
 }
@@ -0,0 +1,100 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the StateDiff class.
+ */
+public class StateDiffTest {
+
+    /**
+     * The first grid patch is complete; later ones contain only changed counts.
+     */
+    @Test
+    public void gridPatchContainsOnlyChanges() {
+        Grid grid = new Grid();
+        Card card = new Card(List.of(Resource.GREEN, Resource.GREEN), null, null, 1);
+        grid.putCard(GridPosition.of(0, 0), card);
+        grid.putCard(GridPosition.of(1, 0), new Card(List.of(Resource.RED), null, null, 1));
+        StateDiff diff = new StateDiff();
+
+        JSONObject first = new JSONObject(diff.gridPatch(1, "1", grid).orElseThrow());
+        assertEquals("1", first.getString("grid"));
+        assertTrue(first.getBoolean("full"));
+        assertEquals(List.of("GREEN", "GREEN"),
+                first.getJSONArray("cells").getJSONObject(0).getJSONObject("card")
+                        .getJSONArray("resources").toList());
+        assertEquals(2, first.getJSONArray("cells").length());
+
+        // nothing changed
+        assertEquals(Optional.empty(), diff.gridPatch(1, "1", grid));
+
+        card.getResources(List.of(Resource.GREEN));
+        card.putResources(List.of(Resource.CAR));
+        JSONObject patch = new JSONObject(diff.gridPatch(1, "1", grid).orElseThrow());
+        assertFalse(patch.getBoolean("full"));
+        JSONArray cells = patch.getJSONArray("cells");
+        assertEquals(1, cells.length());
+        JSONObject resources = cells.getJSONObject(0).getJSONObject("resources");
+        assertEquals(1, resources.getInt("GREEN"));
+        assertEquals(1, resources.getInt("CAR"));
+        assertFalse(resources.has("RED"));
+
+        // another player still gets the complete grid
+        assertTrue(new JSONObject(diff.gridPatch(2, "1", grid).orElseThrow()).getBoolean("full"));
+    }
+
+    /**
+     * Patches of several grids sent to one player are each relative to their own grid.
+     */
+    @Test
+    public void gridPatchTracksEachGridOfPlayer() {
+        Grid own = new Grid();
+        Card card = new Card(List.of(Resource.GREEN), null, null, 1);
+        own.putCard(GridPosition.of(0, 0), card);
+        Grid other = new Grid();
+        other.putCard(GridPosition.of(0, 0), new Card(List.of(Resource.RED), null, null, 1));
+        StateDiff diff = new StateDiff();
+
+        assertTrue(new JSONObject(diff.gridPatch(1, "1", own).orElseThrow()).getBoolean("full"));
+        assertTrue(new JSONObject(diff.gridPatch(1, "2", other).orElseThrow()).getBoolean("full"));
+        assertEquals(Optional.empty(), diff.gridPatch(1, "1", own));
+        assertEquals(Optional.empty(), diff.gridPatch(1, "2", other));
+
+        card.putResources(List.of(Resource.CAR));
+        assertEquals(Optional.empty(), diff.gridPatch(1, "2", other));
+        JSONObject patch = new JSONObject(diff.gridPatch(1, "1", own).orElseThrow());
+        assertFalse(patch.getBoolean("full"));
+        assertEquals("1", patch.getString("grid"));
+        assertEquals(1, patch.getJSONArray("cells").getJSONObject(0).getJSONObject("resources").getInt("CAR"));
+
+        // a forgotten grid is sent completely again, the other one is still tracked
+        diff.reset(1, "2");
+        JSONObject again = new JSONObject(diff.gridPatch(1, "2", other).orElseThrow());
+        assertEquals("2", again.getString("grid"));
+        assertTrue(again.getBoolean("full"));
+        assertEquals(Optional.empty(), diff.gridPatch(1, "1", own));
+    }
+
+    /**
+     * Components are sent only when their state changes, and again after a reset.
+     */
+    @Test
+    public void componentPatchSkipsUnchangedState() {
+        StateDiff diff = new StateDiff();
+
+        assertEquals(Optional.of("a"), diff.componentPatch(1, "scoring", "a"));
+        assertEquals(Optional.empty(), diff.componentPatch(1, "scoring", "a"));
+        assertEquals(Optional.of("b"), diff.componentPatch(1, "scoring", "b"));
+
+        diff.reset(1);
+        assertEquals(Optional.of("b"), diff.componentPatch(1, "scoring", "b"));
+    }
+}
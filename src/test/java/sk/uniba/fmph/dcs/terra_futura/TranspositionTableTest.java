@@ -0,0 +1,58 @@
+package sk.uniba.fmph.dcs.terra_futura;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+public class TranspositionTableTest {
+
+    // Grids reached through different move orders share a hash and a table entry.
+    @Test
+    public void samePositionThroughDifferentOrdersHits() {
+        Card first = new Card(List.of(Resource.GREEN), null, null, 1);
+        Card second = new Card(null, null, 1);
+
+        Grid a = new Grid();
+        a.putCard(GridPosition.of(0, 0), first.copy());
+        a.putCard(GridPosition.of(1, 0), second.copy());
+        a.getCard(GridPosition.of(1, 0)).get().putResources(List.of(Resource.RED));
+
+        Grid b = new Grid();
+        b.putCard(GridPosition.of(1, 0), second.copy());
+        b.getCard(GridPosition.of(1, 0)).get().putResources(List.of(Resource.RED, Resource.CAR));
+        b.getCard(GridPosition.of(1, 0)).get().getResources(List.of(Resource.CAR));
+        b.putCard(GridPosition.of(0, 0), first.copy());
+
+        assertEquals(a.getZobristHash(), b.getZobristHash());
+        assertEquals(a.getZobristHash(), a.fork().getZobristHash());
+
+        TranspositionTable table = new TranspositionTable(1000);
+        assertEquals(1024, table.capacity());
+        table.put(a.getZobristHash(), -7);
+        assertEquals(OptionalInt.of(-7), table.get(b.getZobristHash()));
+    }
+
+    // The hash tells apart the same cards in other cells and different resource counts.
+    @Test
+    public void differentPositionsHaveDifferentHashes() {
+        Card card = new Card(List.of(Resource.GREEN), null, null, 1);
+        Grid a = new Grid();
+        a.putCard(GridPosition.of(0, 0), card.copy());
+        Grid b = new Grid();
+        b.putCard(GridPosition.of(0, 1), card.copy());
+        assertNotEquals(a.getZobristHash(), b.getZobristHash());
+
+        long before = a.getZobristHash();
+        a.getCard(GridPosition.of(0, 0)).get().putResources(List.of(Resource.GREEN));
+        assertNotEquals(before, a.getZobristHash());
+
+        TranspositionTable table = new TranspositionTable(16);
+        table.put(before, 3);
+        assertFalse(table.get(a.getZobristHash()).isPresent());
+    }
+}